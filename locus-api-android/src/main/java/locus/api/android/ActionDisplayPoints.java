@@ -3,7 +3,6 @@ package locus.api.android;
 import android.content.Context;
 import android.content.Intent;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -15,6 +14,7 @@ import locus.api.android.objects.PackPoints;
 import locus.api.android.utils.LocusConst;
 import locus.api.android.utils.exceptions.RequiredVersionMissingException;
 import locus.api.objects.Storable;
+import locus.api.utils.DataReaderBigEndian;
 import locus.api.utils.Logger;
 import locus.api.utils.Utils;
 
@@ -233,15 +233,15 @@ public class ActionDisplayPoints extends ActionDisplay {
             return new ArrayList<>();
         }
 
-        DataInputStream dis = null;
+        FileInputStream fis = null;
         try {
-
-            dis = new DataInputStream(new FileInputStream(file));
-            return Storable.readList(PackPoints.class, dis);
+            // read data continuously, so whole file is not loaded into memory at once
+            fis = new FileInputStream(file);
+            return new DataReaderBigEndian(fis).readListStorable(PackPoints.class);
         } catch (Exception e) {
             Logger.logE(TAG, "readDataWriteOnCard(" + filepath + ")", e);
         } finally {
-            Utils.closeStream(dis);
+            Utils.closeStream(fis);
         }
         return new ArrayList<>();
     }
@@ -23,14 +23,19 @@ import android.graphics.Bitmap;
 
 import locus.api.android.utils.UtilsBitmap;
 import locus.api.objects.Storable;
+import locus.api.objects.extra.BoundingBox;
 import locus.api.objects.extra.GeoDataStyle;
+import locus.api.objects.extra.Location;
 import locus.api.objects.extra.Point;
 import locus.api.utils.DataReaderBigEndian;
 import locus.api.utils.DataWriterBigEndian;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PackPoints extends Storable {
 
@@ -48,6 +53,15 @@ public class PackPoints extends Storable {
     // ArrayList of all points stored in this object
     private List<Point> points;
 
+    // cached bounds of all points, 'null' if not computed yet
+    private BoundingBox mBounds;
+    // state of points, for which are bounds valid
+    private List<Point> mBoundsPoints;
+    private int mBoundsPointsCount;
+
+    // flag if styles of points should be written once in shared table
+    private boolean mStyleDictionary;
+
     /**
      * Empty constructor used for {@link Storable}
      * <br>
@@ -92,13 +106,84 @@ public class PackPoints extends Storable {
         return points;
     }
 
+    /**
+     * Check if styles of points are written in shared table.
+     *
+     * @return {@code true} if table of styles is used
+     */
+    public boolean isStyleDictionary() {
+        return mStyleDictionary;
+    }
+
+    /**
+     * Define if styles of points should be written only once, in table of unique styles
+     * referenced by points (since version 2). This significantly reduces size of data with
+     * many points of same style. Readers of older versions of pack ignore this table, so
+     * points read by them have no styles.
+     * <br><br>
+     * Styles of points read from table are shared only in case, reader has defined cache of
+     * styles (see {@link DataReaderBigEndian#setStyleCache(GeoDataStyle.Cache)}), otherwise
+     * every point gets own instance of style.
+     *
+     * @param styleDictionary {@code true} to write table of styles
+     */
+    public void setStyleDictionary(boolean styleDictionary) {
+        this.mStyleDictionary = styleDictionary;
+    }
+
+    /**
+     * Get bounding box of all points. Bounds are computed lazily and cached, cache is
+     * invalidated by change of number of points. Cache may be stale in case existing point
+     * is replaced or moved, call {@link #invalidateBounds()} after such change. Bounds written
+     * together with pack are always computed from current points.
+     * <br><br>
+     * Returned object must not be modified.
+     *
+     * @return bounds of points, not valid box for pack without points
+     */
+    public BoundingBox getBounds() {
+        if (mBounds != null && mBoundsPoints == points && mBoundsPointsCount == points.size()) {
+            return mBounds;
+        }
+        computeBounds();
+        return mBounds;
+    }
+
+    /**
+     * Compute bounds of current points and store them into cache.
+     */
+    private void computeBounds() {
+        BoundingBox bounds = new BoundingBox();
+        for (int i = 0, m = points.size(); i < m; i++) {
+            Location loc = points.get(i).getLocation();
+            if (loc != null) {
+                bounds.extend(loc.latitude, loc.longitude);
+            }
+        }
+        setBounds(bounds);
+    }
+
+    /**
+     * Invalidate cached bounds of points.
+     */
+    public void invalidateBounds() {
+        mBounds = null;
+        mBoundsPoints = null;
+    }
+
+    private void setBounds(BoundingBox bounds) {
+        mBounds = bounds;
+        mBoundsPoints = points;
+        mBoundsPointsCount = points.size();
+    }
+
     //*************************************************
     // STORABLE
     //*************************************************
 
     @Override
     protected int getVersion() {
-        return 0;
+        return 2;
     }
 
     @SuppressWarnings("unchecked")
@@ -119,6 +204,21 @@ public class PackPoints extends Storable {
 
         // waypoints
         points = dr.readListStorable(Point.class);
+
+        // V1
+
+        invalidateBounds();
+        if (version >= 1 && dr.readBoolean()) {
+            setBounds(new BoundingBox(dr.readDouble(), dr.readDouble(),
+                    dr.readDouble(), dr.readDouble()));
+        }
+
+        // V2
+
+        mStyleDictionary = false;
+        if (version >= 2) {
+            readStyleDictionary(dr);
+        }
     }
 
     @Override
@@ -137,7 +237,156 @@ public class PackPoints extends Storable {
         // bitmap icon
         UtilsBitmap.writeBitmap(dw, imgBitmap, Bitmap.CompressFormat.PNG);
 
-        // waypoints itself
-        dw.writeListStorable(points);
+        // waypoints itself, optionally without styles, that are written in V2
+        GeoDataStyle[] styles = null;
+        int[] styleRefs = null;
+        if (mStyleDictionary) {
+            styleRefs = new int[points.size() * 2];
+            styles = prepareStyleDictionary(styleRefs);
+        }
+        boolean skipStyles = dw.isSkipStyles();
+        dw.setSkipStyles(skipStyles || mStyleDictionary);
+        try {
+            dw.writeListStorable(points);
+        } finally {
+            dw.setSkipStyles(skipStyles);
+        }
+
+        // V1
+
+        computeBounds();
+        BoundingBox bounds = mBounds;
+        dw.writeBoolean(bounds.isValid());
+        if (bounds.isValid()) {
+            dw.writeDouble(bounds.getMinLat());
+            dw.writeDouble(bounds.getMinLon());
+            dw.writeDouble(bounds.getMaxLat());
+            dw.writeDouble(bounds.getMaxLon());
+        }
+
+        // V2
+
+        if (styles == null) {
+            dw.writeInt(0);
+            return;
+        }
+        dw.writeInt(styles.length);
+        for (GeoDataStyle item : styles) {
+            dw.writeStorable(item);
+        }
+        dw.writeInt(points.size());
+        for (int ref : styleRefs) {
+            dw.writeVarInt(ref);
+        }
+    }
+
+    // STYLE DICTIONARY
+
+    /**
+     * Create table of unique styles of points. References to table are stored in 'refs'
+     * as (index + 1), '0' for no style, pair for every point (normal and highlight style).
+     *
+     * @param refs references to table for every style of points
+     * @return table of unique styles
+     */
+    private GeoDataStyle[] prepareStyleDictionary(int[] refs) {
+        List<GeoDataStyle> styles = new ArrayList<>();
+        Map<GeoDataStyle, Integer> byInstance = new IdentityHashMap<>();
+        Map<GeoDataStyle.RawKey, Integer> byContent = new HashMap<>();
+        for (int i = 0; i < refs.length; i++) {
+            Point pt = points.get(i / 2);
+            GeoDataStyle style = i % 2 == 0 ? pt.getStyleNormal() : pt.getStyleHighlight();
+            if (style == null) {
+                refs[i] = 0;
+                continue;
+            }
+            Integer ref = byInstance.get(style);
+            if (ref == null) {
+                GeoDataStyle.RawKey key = new GeoDataStyle.RawKey(style);
+                ref = byContent.get(key);
+                if (ref == null) {
+                    styles.add(style);
+                    ref = styles.size();
+                    byContent.put(key, ref);
+                }
+                byInstance.put(style, ref);
+            }
+            refs[i] = ref;
+        }
+        return styles.toArray(new GeoDataStyle[styles.size()]);
+    }
+
+    private void readStyleDictionary(DataReaderBigEndian dr) throws IOException {
+        int count = dr.readInt();
+        if (count == 0) {
+            return;
+        }
+        mStyleDictionary = true;
+
+        // read styles, shared by points only if reader has cache of styles
+        GeoDataStyle.Cache cache = dr.getStyleCache();
+        GeoDataStyle[] styles = new GeoDataStyle[count];
+        byte[][] rawStyles = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            if (cache != null) {
+                styles[i] = cache.read(dr);
+            } else {
+                rawStyles[i] = readRawStyle(dr);
+            }
+        }
+
+        // assign styles to points
+        int size = dr.readInt();
+        if (size != points.size()) {
+            throw new IOException("Invalid number of style references:" + size);
+        }
+        for (int i = 0; i < size; i++) {
+            Point pt = points.get(i);
+            int normal = dr.readVarInt();
+            int highlight = dr.readVarInt();
+            if (normal < 0 || normal > count || highlight < 0 || highlight > count) {
+                throw new IOException("Invalid style reference");
+            }
+            if (normal > 0) {
+                pt.styleNormal = getStyle(styles, rawStyles, normal - 1);
+            }
+            if (highlight > 0) {
+                pt.styleHighlight = getStyle(styles, rawStyles, highlight - 1);
+            }
+        }
+    }
+
+    /**
+     * Read serialized style (version, size and body) without decoding.
+     */
+    private static byte[] readRawStyle(DataReaderBigEndian dr) throws IOException {
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
+        try {
+            int version = dr.readInt();
+            int size = dr.readInt();
+            if (size < 0) {
+                throw new IOException("Invalid size of style:" + size);
+            }
+            dw.writeInt(version);
+            dw.writeInt(size);
+            dw.write(dr.readBytes(size));
+            return dw.toByteArray();
+        } finally {
+            dw.recycle();
+        }
+    }
+
+    /**
+     * Get style from table. Style shared over cache is returned directly, otherwise new
+     * instance is decoded from serialized form.
+     */
+    private static GeoDataStyle getStyle(GeoDataStyle[] styles, byte[][] rawStyles, int index)
+            throws IOException {
+        if (styles[index] != null) {
+            return styles[index];
+        }
+        GeoDataStyle style = new GeoDataStyle();
+        style.read(rawStyles[index]);
+        return style;
     }
 }
@@ -26,10 +26,10 @@ import locus.api.objects.extra.GeoDataStyle;
 import locus.api.utils.DataReaderBigEndian;
 import locus.api.utils.DataWriterBigEndian;
 import locus.api.utils.Logger;
+import locus.api.utils.TagMap;
 import locus.api.utils.Utils;
 
 import java.io.IOException;
-import java.util.Hashtable;
 
 public abstract class GeoData extends Storable {
 
@@ -51,6 +51,34 @@ public abstract class GeoData extends Storable {
         READ_WRITE
     }
 
+    // DECODE SECTIONS
+
+    /**
+     * Only basic values (ID, name, time of creation, location of point, statistics and bounds
+     * of track) are decoded. Used as mask for {@link DataReaderBigEndian#setDecodeMask(int)}.
+     */
+    public static final int DECODE_HEADER = 0;
+    /**
+     * Decode extra data with parameters.
+     */
+    public static final int DECODE_EXTRA_DATA = 1;
+    /**
+     * Decode styles.
+     */
+    public static final int DECODE_STYLES = 1 << 1;
+    /**
+     * Decode geocaching data of points.
+     */
+    public static final int DECODE_GEOCACHING = 1 << 2;
+    /**
+     * Decode points of tracks.
+     */
+    public static final int DECODE_TRACK_POINTS = 1 << 3;
+    /**
+     * Decode waypoints of tracks.
+     */
+    public static final int DECODE_TRACK_WAYPOINTS = 1 << 4;
+
     // PARAMETERS
 
     // unique ID of this object
@@ -61,13 +89,18 @@ public abstract class GeoData extends Storable {
     // time the data was created
     protected long timeCreated;
 
-    // extra data with parameters
+    // extra data with parameters. Container set directly replaces not decoded extra data
     public GeoDataExtra extraData;
 
-    // style for normal state
+    // style for normal state (may be shared, see getStyleNormalEditable())
     public GeoDataStyle styleNormal;
-    // style for highlight state
+    // style for highlight state (may be shared, see getStyleHighlightEditable())
     public GeoDataStyle styleHighlight;
+    // not decoded extra data, in raw form. Decoded on first access over methods
+    private byte[] mRawExtraData;
+    // not decoded styles, in raw form. Decoded on first access over methods, style set
+    // directly into field replaces only same style of raw data
+    private byte[] mRawStyles;
     // current item state
     private byte state;
 
@@ -78,7 +111,8 @@ public abstract class GeoData extends Storable {
      * Additional temporary storage object. Object is not serialized!
      */
     public Object tag;
-    private Hashtable<String, Object> tags;
+    // additional temporary objects defined by keys, created on demand
+    private TagMap tags;
     /**
      * Temporary variable for sorting.
      */
@@ -158,13 +192,28 @@ public abstract class GeoData extends Storable {
     //*************************************************
 
     protected void readExtraData(DataReaderBigEndian dr) throws IOException {
+        mRawExtraData = null;
+        if ((dr.getDecodeMask() & DECODE_EXTRA_DATA) == 0) {
+            extraData = null;
+            mRawExtraData = readRawOptional(dr, 1);
+            return;
+        }
         if (dr.readBoolean()) {
             extraData = new GeoDataExtra();
             extraData.read(dr);
+        } else {
+            extraData = null;
         }
     }
 
     protected void writeExtraData(DataWriterBigEndian dw) throws IOException {
+        if (mRawExtraData != null) {
+            if (extraData == null) {
+                dw.write(mRawExtraData);
+                return;
+            }
+            decodeExtraData();
+        }
         if (extraData != null && extraData.getCount() > 0) {
             dw.writeBoolean(true);
             dw.writeStorable(extraData);
@@ -174,17 +223,49 @@ public abstract class GeoData extends Storable {
     }
 
     protected void readStyles(DataReaderBigEndian dr) throws IOException {
-        if (dr.readBoolean()) {
-            styleNormal = new GeoDataStyle();
-            styleNormal.read(dr);
+        mRawStyles = null;
+        if ((dr.getDecodeMask() & DECODE_STYLES) == 0) {
+            styleNormal = null;
+            styleHighlight = null;
+            mRawStyles = readRawOptional(dr, 2);
+            return;
         }
-        if (dr.readBoolean()) {
-            styleHighlight = new GeoDataStyle();
-            styleHighlight.read(dr);
+        styleNormal = readStyle(dr);
+        styleHighlight = readStyle(dr);
+    }
+
+    /**
+     * Read single optional style. Style is shared with other objects in case, reader has
+     * defined cache of styles.
+     */
+    private static GeoDataStyle readStyle(DataReaderBigEndian dr) throws IOException {
+        if (!dr.readBoolean()) {
+            return null;
+        }
+        GeoDataStyle.Cache cache = dr.getStyleCache();
+        if (cache != null) {
+            return cache.read(dr);
         }
+        GeoDataStyle style = new GeoDataStyle();
+        style.read(dr);
+        return style;
     }
 
     protected void writeStyles(DataWriterBigEndian dw) throws IOException {
+        if (dw.isSkipStyles()) {
+            dw.writeBoolean(false);
+            dw.writeBoolean(false);
+            return;
+        }
+        if (mRawStyles != null) {
+            if (styleNormal == null && styleHighlight == null) {
+                dw.write(mRawStyles);
+                return;
+            }
+
+            // only one style was set, keep the other one from raw data
+            decodeStyles();
+        }
         if (styleNormal != null) {
             dw.writeBoolean(true);
             dw.writeStorable(styleNormal);
@@ -200,6 +281,219 @@ public abstract class GeoData extends Storable {
         }
     }
 
+    // STYLES
+
+    /**
+     * Get normal style. Style may be shared with other objects, see
+     * {@link #getStyleNormalEditable()}.
+     *
+     * @return normal style or 'null' if not defined
+     */
+    public GeoDataStyle getStyleNormal() {
+        ensureStyles();
+        return styleNormal;
+    }
+
+    /**
+     * Get highlight style. Style may be shared with other objects, see
+     * {@link #getStyleHighlightEditable()}.
+     *
+     * @return highlight style or 'null' if not defined
+     */
+    public GeoDataStyle getStyleHighlight() {
+        ensureStyles();
+        return styleHighlight;
+    }
+
+    /**
+     * Get normal style, that may be modified. Style shared with other objects (read with
+     * {@link GeoDataStyle.Cache}) is replaced by private copy first.
+     *
+     * @return normal style or 'null' if not defined
+     */
+    public GeoDataStyle getStyleNormalEditable() {
+        ensureStyles();
+        if (styleNormal != null) {
+            styleNormal = styleNormal.getCopyIfShared();
+        }
+        return styleNormal;
+    }
+
+    /**
+     * Get highlight style, that may be modified. Style shared with other objects (read with
+     * {@link GeoDataStyle.Cache}) is replaced by private copy first.
+     *
+     * @return highlight style or 'null' if not defined
+     */
+    public GeoDataStyle getStyleHighlightEditable() {
+        ensureStyles();
+        if (styleHighlight != null) {
+            styleHighlight = styleHighlight.getCopyIfShared();
+        }
+        return styleHighlight;
+    }
+
+    // PARTIAL DECODING
+
+    /**
+     * Check if all sections of object are decoded. Sections skipped during read
+     * (see {@link DataReaderBigEndian#setDecodeMask(int)}) are kept in raw form, written back
+     * unchanged and may be decoded by {@link #decodeFully()}.
+     *
+     * @return {@code true} if object is fully decoded
+     */
+    public boolean isDecodedFully() {
+        return mRawExtraData == null && mRawStyles == null;
+    }
+
+    /**
+     * Decode all sections, that were skipped during read. Sections, that were meanwhile
+     * set to new values, are not overwritten. Methods, that access extra data or styles,
+     * decode their section automatically.
+     *
+     * @throws IOException thrown in case of invalid data
+     */
+    public void decodeFully() throws IOException {
+        decodeExtraData();
+        decodeStyles();
+    }
+
+    /**
+     * Decode extra data skipped during read. Extra data set meanwhile directly into
+     * {@link #extraData} replace raw data.
+     *
+     * @throws IOException thrown in case of invalid data
+     */
+    private void decodeExtraData() throws IOException {
+        if (mRawExtraData == null) {
+            return;
+        }
+        byte[] raw = mRawExtraData;
+        mRawExtraData = null;
+        if (extraData == null) {
+            readExtraData(new DataReaderBigEndian(raw));
+        }
+    }
+
+    /**
+     * Decode styles skipped during read. Style set meanwhile directly into
+     * {@link #styleNormal} or {@link #styleHighlight} replaces only same style of raw data.
+     *
+     * @throws IOException thrown in case of invalid data
+     */
+    private void decodeStyles() throws IOException {
+        if (mRawStyles == null) {
+            return;
+        }
+        byte[] raw = mRawStyles;
+        GeoDataStyle normal = styleNormal;
+        GeoDataStyle highlight = styleHighlight;
+        readStyles(new DataReaderBigEndian(raw));
+        if (normal != null) {
+            styleNormal = normal;
+        }
+        if (highlight != null) {
+            styleHighlight = highlight;
+        }
+    }
+
+    /**
+     * Make sure, extra data are decoded before access.
+     */
+    private void ensureExtraData() {
+        try {
+            decodeExtraData();
+        } catch (IOException e) {
+            Logger.logE(TAG, "ensureExtraData()", e);
+            extraData = null;
+        }
+    }
+
+    /**
+     * Make sure, styles are decoded before access.
+     */
+    private void ensureStyles() {
+        try {
+            decodeStyles();
+        } catch (IOException e) {
+            Logger.logE(TAG, "ensureStyles()", e);
+        }
+    }
+
+    /**
+     * Read optional {@link Storable} objects (each one prefixed by boolean flag of existence)
+     * in raw form, without decoding.
+     *
+     * @param dr    data reader
+     * @param count number of optional objects
+     * @return raw data or 'null' if no object exists
+     * @throws IOException thrown in case of invalid data
+     */
+    protected static byte[] readRawOptional(DataReaderBigEndian dr, int count)
+            throws IOException {
+        // single object is copied directly into array of exact size
+        if (count == 1) {
+            if (!dr.readBoolean()) {
+                return null;
+            }
+            int version = dr.readInt();
+            int size = dr.readInt();
+            if (size < 0) {
+                throw new IOException("Invalid size of object:" + size);
+            }
+            byte[] raw = new byte[9 + size];
+            raw[0] = 1;
+            writeInt(raw, 1, version);
+            writeInt(raw, 5, size);
+            dr.readBytes(raw, 9, size);
+            return raw;
+        }
+
+        // more objects
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
+        try {
+            boolean any = false;
+            for (int i = 0; i < count; i++) {
+                boolean exists = dr.readBoolean();
+                dw.writeBoolean(exists);
+                if (exists) {
+                    copyRawStorable(dr, dw);
+                    any = true;
+                }
+            }
+            return any ? dw.toByteArray() : null;
+        } finally {
+            dw.recycle();
+        }
+    }
+
+    private static void writeInt(byte[] data, int offset, int v) {
+        data[offset] = (byte) (v >>> 24);
+        data[offset + 1] = (byte) (v >>> 16);
+        data[offset + 2] = (byte) (v >>> 8);
+        data[offset + 3] = (byte) v;
+    }
+
+    /**
+     * Copy single {@link Storable} object in raw form (version, size and body) from reader
+     * into writer, without decoding.
+     *
+     * @param dr data reader
+     * @param dw data writer
+     * @throws IOException thrown in case of invalid data
+     */
+    protected static void copyRawStorable(DataReaderBigEndian dr, DataWriterBigEndian dw)
+            throws IOException {
+        int version = dr.readInt();
+        int size = dr.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid size of object:" + size);
+        }
+        dw.writeInt(version);
+        dw.writeInt(size);
+        dw.write(dr.readBytes(size));
+    }
+
     //*************************************************
     // GET & SET METHODS
     //*************************************************
@@ -300,7 +594,42 @@ public abstract class GeoData extends Storable {
             }
         } else {
             if (tags == null) {
-                tags = new Hashtable<>();
+                tags = new TagMap();
+            }
+            tags.put(key, value);
+        }
+    }
+
+    /**
+     * Get tag attached to object, defined by typed key. Typed keys are faster than
+     * text keys and do not need cast of result.
+     *
+     * @param key key value that defined object
+     * @param <T> type of object
+     * @return required object otherwise 'null'
+     */
+    public <T> T getTag(TagMap.Key<T> key) {
+        if (tags == null) {
+            return null;
+        }
+        return tags.get(key);
+    }
+
+    /**
+     * Set new tag/object defined by typed key.
+     *
+     * @param key   key that define object
+     * @param value object itself or 'null' if we wants to remove it
+     * @param <T>   type of object
+     */
+    public <T> void setTag(TagMap.Key<T> key, T value) {
+        if (value == null) {
+            if (tags != null) {
+                tags.remove(key);
+            }
+        } else {
+            if (tags == null) {
+                tags = new TagMap();
             }
             tags.put(key, value);
         }
@@ -314,13 +643,15 @@ public abstract class GeoData extends Storable {
      * @return serialized extra data or 'null' if data doesn't exists
      */
     public byte[] getExtraDataRaw() {
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
         try {
-            DataWriterBigEndian dw = new DataWriterBigEndian();
             writeExtraData(dw);
             return dw.toByteArray();
         } catch (IOException e) {
             Logger.logE(TAG, "getExtraDataRaw()", e);
             return null;
+        } finally {
+            dw.recycle();
         }
     }
 
@@ -346,6 +677,7 @@ public abstract class GeoData extends Storable {
      * @return {@code true} if extraData object is available
      */
     public boolean hasExtraData() {
+        ensureExtraData();
         return extraData != null;
     }
 
@@ -392,6 +724,7 @@ public abstract class GeoData extends Storable {
      * @return loaded value (length() bigger then 0) or 'null' in case, parameter do not exists
      */
     public String getParameter(int paramId) {
+        ensureExtraData();
         if (extraData == null) {
             return null;
         }
@@ -399,6 +732,7 @@ public abstract class GeoData extends Storable {
     }
 
     public byte[] getParameterRaw(int paramId) {
+        ensureExtraData();
         if (extraData == null) {
             return null;
         }
@@ -412,6 +746,8 @@ public abstract class GeoData extends Storable {
      * @return <code>true</code> if non-empty parameter exists
      */
     public boolean hasParameter(int paramId) {
+        ensureExtraData();
+
         // check existence of container
         if (extraData == null) {
             return false;
@@ -422,6 +758,7 @@ public abstract class GeoData extends Storable {
     }
 
     public String removeParameter(int paramId) {
+        ensureExtraData();
         if (extraData == null) {
             return null;
         }
@@ -440,15 +777,12 @@ public abstract class GeoData extends Storable {
      * @return source parameter or 'SOURCE_UNKNOWN' if not defined
      */
     public byte getParameterSource() {
+        ensureExtraData();
         if (extraData == null) {
             return GeoDataExtra.SOURCE_UNKNOWN;
         }
-        byte[] res = extraData.getParameterRaw(GeoDataExtra.PAR_SOURCE);
-        if (res == null || res.length != 1) {
-            return GeoDataExtra.SOURCE_UNKNOWN;
-        } else {
-            return res[0];
-        }
+        return extraData.getParameterByte(GeoDataExtra.PAR_SOURCE,
+                GeoDataExtra.SOURCE_UNKNOWN);
     }
 
     /**
@@ -480,6 +814,7 @@ public abstract class GeoData extends Storable {
     // PARAMETER 'STYLE'
 
     public String getParameterStyleName() {
+        ensureExtraData();
         if (extraData == null) {
             return "";
         }
@@ -491,6 +826,7 @@ public abstract class GeoData extends Storable {
     }
 
     public void removeParameterStyleName() {
+        ensureExtraData();
         if (extraData == null) {
             return;
         }
@@ -514,6 +850,7 @@ public abstract class GeoData extends Storable {
      * @return description parameter of empty String if not defined
      */
     public String getParameterDescription() {
+        ensureExtraData();
         if (extraData == null) {
             return "";
         }
@@ -696,13 +1033,15 @@ public abstract class GeoData extends Storable {
     // STYLES
 
     public byte[] getStyles() {
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
         try {
-            DataWriterBigEndian dw = new DataWriterBigEndian();
             writeStyles(dw);
             return dw.toByteArray();
         } catch (IOException e) {
             Logger.logE(TAG, "getStylesRaw()", e);
             return null;
+        } finally {
+            dw.recycle();
         }
     }
 
@@ -746,6 +1085,7 @@ public abstract class GeoData extends Storable {
      * @return <code>true</code> if container was created
      */
     private boolean createExtraData() {
+        ensureExtraData();
         if (extraData == null) {
             extraData = new GeoDataExtra();
             return true;
@@ -19,6 +19,7 @@
  */
 package locus.api.objects;
 
+import locus.api.utils.Compression;
 import locus.api.utils.DataReaderBigEndian;
 import locus.api.utils.DataWriterBigEndian;
 import locus.api.utils.Logger;
@@ -27,7 +28,11 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings("TryWithIdenticalCatches")
 public abstract class Storable {
@@ -46,6 +51,31 @@ public abstract class Storable {
         byte[] data;
     }
 
+    /**
+     * Factory that creates new empty instances of certain Storable class. Factories allow
+     * to create instances during read without a need of slow reflection.
+     *
+     * @param <E> class type
+     */
+    public interface Factory<E extends Storable> {
+
+        /**
+         * Create new empty instance.
+         *
+         * @return new instance
+         */
+        E create();
+    }
+
+    // registered factories. Every class registers own factory in its static initializer
+    private static final Map<Class<?>, Factory<?>> FACTORIES = new ConcurrentHashMap<>();
+
+    /**
+     * Flag of version of object written in compact encoding. Lower bits contain version of
+     * compact layout, so compact and legacy layouts of object are versioned independently.
+     */
+    protected static final int VERSION_FLAG_COMPACT = 0x40000000;
+
     // PUBLIC CONSTRUCTORS
 
     /**
@@ -61,6 +91,19 @@ public abstract class Storable {
      */
     protected abstract int getVersion();
 
+    /**
+     * Version of object used for writing into certain writer. Objects, that support
+     * compact encoding (see {@link DataWriterBigEndian#setCompactEncoding(boolean)}), return
+     * version of their compact layout marked by {@link #VERSION_FLAG_COMPACT} in case
+     * writer uses it.
+     *
+     * @param dw writer, where object will be written
+     * @return version of written object
+     */
+    protected int getVersion(DataWriterBigEndian dw) {
+        return getVersion();
+    }
+
     //*************************************************
     // READ PART
     //*************************************************
@@ -68,13 +111,14 @@ public abstract class Storable {
     // RAW DATA
 
     /**
-     * Read content of certain item from byte array.
+     * Read content of certain item from byte array. Data compressed by {@link Compression}
+     * are detected and decompressed automatically.
      *
      * @param data array with data
      * @throws IOException thrown in case of invalid data format
      */
     public void read(byte[] data) throws IOException {
-        DataReaderBigEndian dr = new DataReaderBigEndian(data);
+        DataReaderBigEndian dr = new DataReaderBigEndian(Compression.decompressIfNeeded(data));
         read(dr);
     }
 
@@ -88,37 +132,48 @@ public abstract class Storable {
      */
     public void read(DataReaderBigEndian dr) throws IOException {
         // read header
-        BodyContainer bc = readHeader(dr);
+        int version = dr.readInt();
+        int size = readSize(dr);
 
-        // read body
-        readObject(bc.version, new DataReaderBigEndian(bc.data));
+        // read body directly from parent reader
+        readBody(this, version, size, dr);
     }
 
     /**
-     * Read header of object from stream.
+     * Read size of object body from stream and validate it.
      *
      * @param dr input stream
-     * @return read data container
+     * @return size of object body
      * @throws IOException thrown in case of invalid data format
      */
-    private static BodyContainer readHeader(DataReaderBigEndian dr) throws IOException {
-        // initialize container
-        BodyContainer bc = new BodyContainer();
-
-        // read basic data
-        bc.version = dr.readInt();
+    private static int readSize(DataReaderBigEndian dr) throws IOException {
         int size = dr.readInt();
 
-        // check size to prevent OOE
-        if (size < 0 || size > 20 * 1024 * 1024) {
-            throw new IOException("item size too big, size:" + size + ", max: 20MB");
+        // check size. Limit of available data is checked when reading body
+        if (size < 0) {
+            throw new IOException("item size invalid, size:" + size);
         }
+        return size;
+    }
 
-        // read object data
-        bc.data = dr.readBytes(size);
-
-        // return filled container
-        return bc;
+    /**
+     * Read body of object. Reader is limited to the body of object during read, so object
+     * cannot read over it's own data. Any unknown trailing data are skipped.
+     *
+     * @param storable object to fill
+     * @param version  version of loading content
+     * @param size     size of body
+     * @param dr       data reader with content
+     * @throws IOException thrown in case of invalid data format
+     */
+    private static void readBody(Storable storable, int version, int size,
+            DataReaderBigEndian dr) throws IOException {
+        long prevLimit = dr.startSlice(size);
+        try {
+            storable.readObject(version, dr);
+        } finally {
+            dr.endSlice(prevLimit);
+        }
     }
 
     // DATA INPUT STREAM
@@ -188,22 +243,20 @@ public abstract class Storable {
      */
     public void write(DataWriterBigEndian dw) throws IOException {
         // write version
-        dw.writeInt(getVersion());
+        dw.writeInt(getVersion(dw));
 
-        // save position and write empty size
-        dw.writeInt(0);
-        int startSize = dw.size();
+        // reserve space for size. Body is written directly into writer and size is
+        // written back once known, so no temporary buffer is needed
+        int sizePos = dw.reserveInt();
+        int startPos = dw.getPosition();
 
         // write object itself
         writeObject(dw);
 
         // return back and write 'totalSize'
-        int totalSize = dw.size() - startSize;
+        int totalSize = dw.getPosition() - startPos;
         if (totalSize > 0) {
-            dw.storePosition();
-            dw.moveTo(startSize - 4);
-            dw.writeInt(totalSize);
-            dw.restorePosition();
+            dw.writeIntAt(sizePos, totalSize);
         }
     }
 
@@ -237,13 +290,15 @@ public abstract class Storable {
      * @return serialized object
      */
     public byte[] getAsBytes() {
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
         try {
-            DataWriterBigEndian dw = new DataWriterBigEndian();
             write(dw);
             return dw.toByteArray();
         } catch (IOException e) {
             Logger.logE(TAG, "getAsBytes()", e);
             return null;
+        } finally {
+            dw.recycle();
         }
     }
 
@@ -266,11 +321,37 @@ public abstract class Storable {
     public static <E extends Storable> E read(Class<E> claz, DataReaderBigEndian dr)
             throws IOException, InstantiationException, IllegalAccessException {
         // read header
-        BodyContainer bc = readHeader(dr);
+        int version = dr.readInt();
+        int size = readSize(dr);
 
-        // now initialize object. Data are already loaded, so error will not break data flow
-        E storable = claz.newInstance();
-        storable.readObject(bc.version, new DataReaderBigEndian(bc.data));
+        // now initialize object. Body is skipped in case of problem, so error will not
+        // break data flow
+        E storable;
+        try {
+            storable = newInstance(claz);
+        } catch (InstantiationException e) {
+            dr.skip(size);
+            throw e;
+        } catch (IllegalAccessException e) {
+            dr.skip(size);
+            throw e;
+        }
+        readBody(storable, version, size, dr);
+        return storable;
+    }
+
+    /**
+     * Read certain class from input. Instance is created by factory, without reflection.
+     *
+     * @param factory factory that create instance to read
+     * @param dr      reader with data
+     * @return read class
+     * @throws IOException thrown in case of invalid data format
+     */
+    public static <E extends Storable> E read(Factory<E> factory, DataReaderBigEndian dr)
+            throws IOException {
+        E storable = factory.create();
+        storable.read(dr);
         return storable;
     }
 
@@ -282,13 +363,15 @@ public abstract class Storable {
      */
     public static void readUnknownObject(DataReaderBigEndian dr) throws IOException {
         // read header. This also allow to skip body of object
-        readHeader(dr);
+        dr.readInt();
+        dr.skip(readSize(dr));
     }
 
     // LIST READING/WRITING
 
     /**
-     * Read list of certain classes from input stream.
+     * Read list of certain classes from byte array. Data compressed by {@link Compression}
+     * are detected and decompressed automatically.
      *
      * @param claz class to instantiate and read
      * @param data byte array with pack data
@@ -297,7 +380,36 @@ public abstract class Storable {
      */
     public static <E extends Storable> List<E> readList(Class<E> claz,
             byte[] data) throws IOException {
-        return new DataReaderBigEndian(data).readListStorable(claz);
+        return new DataReaderBigEndian(Compression.decompressIfNeeded(data))
+                .readListStorable(claz);
+    }
+
+    /**
+     * Iterate over list of certain classes stored in reader. Items are read lazily one by
+     * one, so whole list is never held in memory.
+     *
+     * @param claz class to instantiate and read
+     * @param dr   reader with data
+     * @return iterator over items
+     */
+    public static <E extends Storable> Iterator<E> iterateList(Class<E> claz,
+            DataReaderBigEndian dr) {
+        return dr.iterateListStorable(claz);
+    }
+
+    /**
+     * Read list of certain classes from byte array. Data compressed by {@link Compression}
+     * are detected and decompressed automatically.
+     *
+     * @param factory factory that create instances to read
+     * @param data    byte array with pack data
+     * @return loaded list of items
+     * @throws IOException thrown in case of invalid data format
+     */
+    public static <E extends Storable> List<E> readList(Factory<E> factory,
+            byte[] data) throws IOException {
+        return new DataReaderBigEndian(Compression.decompressIfNeeded(data))
+                .readListStorable(factory);
     }
 
     /**
@@ -319,10 +431,15 @@ public abstract class Storable {
             return objs;
         }
 
+        // compressed list
+        if (count == Compression.MAGIC) {
+            return readList(claz, Compression.decompressFrameBody(dis));
+        }
+
         // read locations
         for (int i = 0; i < count; i++) {
             try {
-                E item = claz.newInstance();
+                E item = newInstance(claz);
                 item.read(dis);
                 objs.add(item);
             } catch (InstantiationException e) {
@@ -343,16 +460,48 @@ public abstract class Storable {
      * @return generated byte array with items
      */
     public static byte[] getAsBytes(List<? extends Storable> data) {
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
         try {
-            DataWriterBigEndian dw = new DataWriterBigEndian();
             dw.writeListStorable(data);
             return dw.toByteArray();
         } catch (Exception e) {
             Logger.logE(TAG, "getAsBytes(" + data + ")", e);
+        } finally {
+            dw.recycle();
         }
         return null;
     }
 
+    /**
+     * Get list of items as compressed byte array, see {@link Compression#compress(byte[])}.
+     * Result may be read by all 'readList' methods or by {@link DataReaderBigEndian} created
+     * over input stream, which detect compressed data automatically.
+     *
+     * @param data list of storable items
+     * @return generated byte array with items
+     */
+    public static byte[] getAsBytesCompressed(List<? extends Storable> data) {
+        return Compression.compress(getAsBytes(data));
+    }
+
+    /**
+     * Write certain list into output stream in compressed form,
+     * see {@link #getAsBytesCompressed(List)}.
+     *
+     * @param objs list of storable items
+     * @param dos  output stream where to write items
+     * @throws IOException thrown in case of invalid data format
+     */
+    public static void writeListCompressed(List<? extends Storable> objs, DataOutputStream dos)
+            throws IOException {
+        byte[] data = getAsBytesCompressed(objs == null
+                ? Collections.<Storable>emptyList() : objs);
+        if (data == null) {
+            throw new IOException("Unable to serialize list");
+        }
+        dos.write(data);
+    }
+
     /**
      * Write certain list into output stream.
      *
@@ -377,8 +526,59 @@ public abstract class Storable {
         }
 
         // write objects
-        for (int i = 0, n = objs.size(); i < n; i++) {
-            dos.write(objs.get(i).getAsBytes());
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
+        try {
+            for (int i = 0, n = objs.size(); i < n; i++) {
+                dw.reset();
+                objs.get(i).write(dw);
+                dw.writeTo(dos);
+            }
+        } finally {
+            dw.recycle();
+        }
+    }
+
+    // FACTORIES
+
+    /**
+     * Register factory for certain class. Registered factory is then used for creating
+     * instances of this class in all read functions. Classes of this library register their
+     * factories in own static initializer, so until class is loaded, instances are created
+     * over reflection.
+     *
+     * @param claz    class of items
+     * @param factory factory for items
+     */
+    public static <E extends Storable> void registerFactory(Class<E> claz, Factory<E> factory) {
+        FACTORIES.put(claz, factory);
+    }
+
+    /**
+     * Get factory registered for certain class.
+     *
+     * @param claz class of items
+     * @return registered factory or 'null' if no factory is registered for this class
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Storable> Factory<E> getFactory(Class<E> claz) {
+        return (Factory<E>) FACTORIES.get(claz);
+    }
+
+    /**
+     * Create new instance of certain class. Registered factory is used if exists, otherwise
+     * instance is created over reflection.
+     *
+     * @param claz class to instantiate
+     * @return new instance
+     * @throws InstantiationException throws if class cannot be initialized
+     * @throws IllegalAccessException in case of access to class constructor is limited
+     */
+    private static <E extends Storable> E newInstance(Class<E> claz)
+            throws InstantiationException, IllegalAccessException {
+        Factory<E> factory = getFactory(claz);
+        if (factory != null) {
+            return factory.create();
         }
+        return claz.newInstance();
     }
 }
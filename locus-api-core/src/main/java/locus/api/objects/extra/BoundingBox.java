@@ -0,0 +1,214 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.objects.extra;
+
+import locus.api.objects.utils.LocationCompute;
+
+/**
+ * Geographic bounding box defined by minimal and maximal coordinates.
+ * <br><br>
+ * Box does not support crossing of 180th meridian. Empty box (without any coordinates)
+ * is not valid, see {@link #isValid()}.
+ */
+public class BoundingBox {
+
+    // minimal latitude
+    private double mMinLat;
+    // minimal longitude
+    private double mMinLon;
+    // maximal latitude
+    private double mMaxLat;
+    // maximal longitude
+    private double mMaxLon;
+
+    /**
+     * Create empty box.
+     */
+    public BoundingBox() {
+        reset();
+    }
+
+    /**
+     * Create box with defined coordinates.
+     *
+     * @param minLat minimal latitude
+     * @param minLon minimal longitude
+     * @param maxLat maximal latitude
+     * @param maxLon maximal longitude
+     */
+    public BoundingBox(double minLat, double minLon, double maxLat, double maxLon) {
+        set(minLat, minLon, maxLat, maxLon);
+    }
+
+    /**
+     * Create copy of existing box.
+     *
+     * @param box box to copy
+     */
+    public BoundingBox(BoundingBox box) {
+        set(box.mMinLat, box.mMinLon, box.mMaxLat, box.mMaxLon);
+    }
+
+    //*************************************************
+    // GET & SET
+    //*************************************************
+
+    public double getMinLat() {
+        return mMinLat;
+    }
+
+    public double getMinLon() {
+        return mMinLon;
+    }
+
+    public double getMaxLat() {
+        return mMaxLat;
+    }
+
+    public double getMaxLon() {
+        return mMaxLon;
+    }
+
+    /**
+     * Set coordinates of box.
+     *
+     * @param minLat minimal latitude
+     * @param minLon minimal longitude
+     * @param maxLat maximal latitude
+     * @param maxLon maximal longitude
+     */
+    public void set(double minLat, double minLon, double maxLat, double maxLon) {
+        this.mMinLat = minLat;
+        this.mMinLon = minLon;
+        this.mMaxLat = maxLat;
+        this.mMaxLon = maxLon;
+    }
+
+    /**
+     * Reset box to empty (invalid) state.
+     */
+    public void reset() {
+        set(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Check if box contains any coordinates.
+     *
+     * @return {@code true} if box is valid
+     */
+    public boolean isValid() {
+        return mMinLat <= mMaxLat && mMinLon <= mMaxLon;
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    /**
+     * Extend box to contain certain coordinates.
+     *
+     * @param lat latitude
+     * @param lon longitude
+     */
+    public void extend(double lat, double lon) {
+        if (lat < mMinLat) {
+            mMinLat = lat;
+        }
+        if (lat > mMaxLat) {
+            mMaxLat = lat;
+        }
+        if (lon < mMinLon) {
+            mMinLon = lon;
+        }
+        if (lon > mMaxLon) {
+            mMaxLon = lon;
+        }
+    }
+
+    /**
+     * Extend box to contain another box.
+     *
+     * @param box box to contain
+     */
+    public void extend(BoundingBox box) {
+        if (!box.isValid()) {
+            return;
+        }
+        mMinLat = Math.min(mMinLat, box.mMinLat);
+        mMinLon = Math.min(mMinLon, box.mMinLon);
+        mMaxLat = Math.max(mMaxLat, box.mMaxLat);
+        mMaxLon = Math.max(mMaxLon, box.mMaxLon);
+    }
+
+    /**
+     * Check if box contains certain coordinates.
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return {@code true} if coordinates are inside of box
+     */
+    public boolean contains(double lat, double lon) {
+        return lat >= mMinLat && lat <= mMaxLat && lon >= mMinLon && lon <= mMaxLon;
+    }
+
+    /**
+     * Check if box intersects with another box.
+     *
+     * @param box another box
+     * @return {@code true} if boxes intersect
+     */
+    public boolean intersects(BoundingBox box) {
+        return intersects(box.mMinLat, box.mMinLon, box.mMaxLat, box.mMaxLon);
+    }
+
+    /**
+     * Check if box intersects with area defined by coordinates.
+     *
+     * @param minLat minimal latitude
+     * @param minLon minimal longitude
+     * @param maxLat maximal latitude
+     * @param maxLon maximal longitude
+     * @return {@code true} if box intersects with area
+     */
+    public boolean intersects(double minLat, double minLon, double maxLat, double maxLon) {
+        return mMinLat <= maxLat && mMaxLat >= minLat && mMinLon <= maxLon && mMaxLon >= minLon;
+    }
+
+    /**
+     * Compute distance from certain coordinates to nearest point of box on Earth
+     * approximated as sphere.
+     *
+     * @param lat latitude
+     * @param lon longitude
+     * @return distance in metres, '0' for coordinates inside of box
+     */
+    public double distanceToFast(double lat, double lon) {
+        double nearLat = Math.max(mMinLat, Math.min(mMaxLat, lat));
+        double nearLon = Math.max(mMinLon, Math.min(mMaxLon, lon));
+        return LocationCompute.computeDistanceFast(lat, lon, nearLat, nearLon);
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox [" + mMinLat + ", " + mMinLon + ", " + mMaxLat + ", " + mMaxLon + "]";
+    }
+}
@@ -16,6 +16,15 @@ public class Circle extends GeoData {
     // draw as precise geodetic circle
     private boolean drawPrecise;
 
+    static {
+        registerFactory(Circle.class, new Factory<Circle>() {
+            @Override
+            public Circle create() {
+                return new Circle();
+            }
+        });
+    }
+
     /**
      * Empty constructor for storable object only,
      * do not use directly
@@ -29,8 +29,6 @@ import locus.api.objects.Storable;
 import locus.api.utils.DataReaderBigEndian;
 import locus.api.utils.DataWriterBigEndian;
 import locus.api.utils.Logger;
-import locus.api.utils.SparseArrayCompat;
-import locus.api.utils.Utils;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
 public class GeoDataExtra extends Storable {
@@ -304,7 +302,7 @@ public class GeoDataExtra extends Storable {
     /**
      * table for additional parameters
      */
-    SparseArrayCompat<byte[]> parameters;
+    PackedParameters parameters;
 
     public static class LabelTextContainer {
 
@@ -359,8 +357,17 @@ public class GeoDataExtra extends Storable {
         }
     }
 
+    static {
+        registerFactory(GeoDataExtra.class, new Factory<GeoDataExtra>() {
+            @Override
+            public GeoDataExtra create() {
+                return new GeoDataExtra();
+            }
+        });
+    }
+
     public GeoDataExtra() {
-        parameters = new SparseArrayCompat<>();
+        parameters = new PackedParameters();
     }
 
     //*************************************************
@@ -372,29 +379,20 @@ public class GeoDataExtra extends Storable {
         return 0;
     }
 
+    @Override
+    protected int getVersion(DataWriterBigEndian dw) {
+        return dw.isCompactEncoding() ? VERSION_FLAG_COMPACT : getVersion();
+    }
+
     @Override
     protected void readObject(int version, DataReaderBigEndian dr)
             throws IOException {
-        int size = dr.readInt();
-        parameters.clear();
-        for (int i = 0; i < size; i++) {
-            int key = dr.readInt();
-            parameters.put(key, dr.readBytes(dr.readInt()));
-        }
+        parameters.read(dr, (version & VERSION_FLAG_COMPACT) != 0);
     }
 
     @Override
     protected void writeObject(DataWriterBigEndian dw) throws IOException {
-        dw.writeInt(parameters.size());
-        for (int i = 0, m = parameters.size(); i < m; i++) {
-            int key = parameters.keyAt(i);
-            dw.writeInt(key);
-            byte[] data = parameters.valueAt(i);
-            dw.writeInt(data.length);
-            if (data.length > 0) {
-                dw.write(data);
-            }
-        }
+        parameters.write(dw, dw.isCompactEncoding());
     }
 
     //*************************************************
@@ -431,7 +429,7 @@ public class GeoDataExtra extends Storable {
         }
 
         // finally insert value
-        parameters.put(key, Utils.doStringToBytes(value));
+        parameters.putText(key, value);
         return true;
     }
 
@@ -475,24 +473,62 @@ public class GeoDataExtra extends Storable {
     }
 
 
+    /**
+     * Get parameter as text. Text is decoded on first access only.
+     *
+     * @param key key ID
+     * @return parameter value or 'null' if parameter does not exist
+     */
     public String getParameter(int key) {
-        byte[] data = parameters.get(key);
-        if (data != null) {
-            return Utils.doBytesToString(data);
-        } else {
-            return null;
+        return parameters.getText(key);
+    }
+
+    /**
+     * Get parameter as integer number, parsed directly from stored data.
+     *
+     * @param key          key ID
+     * @param defaultValue value returned if parameter does not exist or is not a number
+     * @return parameter value
+     */
+    public int getParameterInt(int key, int defaultValue) {
+        long value = parameters.getLong(key, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return defaultValue;
         }
+        return (int) value;
+    }
+
+    /**
+     * Get parameter as long number, parsed directly from stored data.
+     *
+     * @param key          key ID
+     * @param defaultValue value returned if parameter does not exist or is not a number
+     * @return parameter value
+     */
+    public long getParameterLong(int key, long defaultValue) {
+        return parameters.getLong(key, defaultValue);
+    }
+
+    /**
+     * Get parameter stored as single byte, see {@link #addParameter(int, byte)}.
+     *
+     * @param key          key ID
+     * @param defaultValue value returned if parameter does not exist or is not a single byte
+     * @return parameter value
+     */
+    public byte getParameterByte(int key, byte defaultValue) {
+        return parameters.getByte(key, defaultValue);
     }
 
     /**
-     * Return Raw data from storage. Do not modify these data directly. For
-     * fast access is provided original array, not any copy!
+     * Return raw data from storage. Values are stored in shared buffer, so result
+     * is always a new copy.
      *
      * @param key key ID
-     * @return raw parameters data
+     * @return raw parameters data or 'null' if parameter does not exist
      */
     public byte[] getParameterRaw(int key) {
-        return parameters.get(key);
+        return parameters.getBytes(key);
     }
 
     /**
@@ -511,7 +547,7 @@ public class GeoDataExtra extends Storable {
     }
 
     public boolean hasParameter(int key) {
-        return parameters.get(key) != null;
+        return parameters.contains(key);
     }
 
     public String removeParameter(int key) {
@@ -678,7 +714,7 @@ public class GeoDataExtra extends Storable {
         for (int key = rangeFrom; key <= rangeTo; key++) {
             String value = getParameter(key);
             if (value == null) {
-                parameters.put(key, Utils.doStringToBytes(item));
+                parameters.putText(key, item);
                 return true;
             } else if (value.equalsIgnoreCase(item)) {
                 // item already exists
@@ -22,6 +22,8 @@ package locus.api.objects.extra;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import locus.api.objects.Storable;
 import locus.api.utils.DataReaderBigEndian;
@@ -50,6 +52,18 @@ public class GeoDataStyle extends Storable {
     // line style system (line, polygon)
     private LineStyle mLineStyle;
 
+    // flag if style is shared by more objects (obtained from cache)
+    private boolean mShared;
+
+    static {
+        registerFactory(GeoDataStyle.class, new Factory<GeoDataStyle>() {
+            @Override
+            public GeoDataStyle create() {
+                return new GeoDataStyle();
+            }
+        });
+    }
+
     /**
      * Create new instance of style container.
      */
@@ -77,6 +91,46 @@ public class GeoDataStyle extends Storable {
         }
     }
 
+    /**
+     * Check if style is shared by more objects, because it was obtained from {@link Cache}.
+     * Shared style must not be modified (setters throw {@link IllegalStateException}), create
+     * a copy by {@link #getCopyIfShared()} instead.
+     *
+     * @return {@code true} if style is shared
+     */
+    public boolean isShared() {
+        return mShared;
+    }
+
+    /**
+     * Get style that may be modified. Shared style is copied, otherwise current
+     * instance is returned.
+     *
+     * @return style for modification
+     */
+    public GeoDataStyle getCopyIfShared() {
+        if (!mShared) {
+            return this;
+        }
+        GeoDataStyle style = new GeoDataStyle();
+        try {
+            style.read(getAsBytes());
+        } catch (IOException e) {
+            Logger.logE(TAG, "getCopyIfShared()", e);
+        }
+        return style;
+    }
+
+    /**
+     * Check that style is not shared, before its modification.
+     */
+    private void checkModifiable() {
+        if (mShared) {
+            throw new IllegalStateException("Shared style must not be modified, " +
+                    "use 'getCopyIfShared()'");
+        }
+    }
+
     //*************************************************
     // SETTERS & GETTERS
     //*************************************************
@@ -98,6 +152,7 @@ public class GeoDataStyle extends Storable {
      * @param id new ID
      */
     public void setId(String id) {
+        checkModifiable();
         if (id == null) {
             id = "";
         }
@@ -121,6 +176,7 @@ public class GeoDataStyle extends Storable {
      * @param name new name
      */
     public void setName(String name) {
+        checkModifiable();
         if (name == null) {
             name = "";
         }
@@ -155,6 +211,7 @@ public class GeoDataStyle extends Storable {
     }
 
     public void setIconStyle(String iconUrl, int color, float heading, float scale) {
+        checkModifiable();
         iconStyle = new IconStyle();
         iconStyle.setIconHref(iconUrl);
         iconStyle.color = color;
@@ -170,6 +227,7 @@ public class GeoDataStyle extends Storable {
     public static final int HOTSPOT_CENTER_CENTER = 2;
 
     public void setIconStyleHotSpot(int hotspot) {
+        checkModifiable();
         if (iconStyle == null) {
             Logger.logW(TAG, "setIconStyleHotSpot(" + hotspot + "), " +
                     "initialize IconStyle before settings hotSpot!");
@@ -195,6 +253,7 @@ public class GeoDataStyle extends Storable {
     }
 
     public void setIconStyleHotSpot(KmlVec2 vec2) {
+        checkModifiable();
         if (iconStyle == null || vec2 == null) {
             Logger.logW(TAG, "setIconStyleHotSpot(" + vec2 + "), " +
                     "initialize IconStyle before settings hotSpot or hotSpot is null!");
@@ -232,6 +291,7 @@ public class GeoDataStyle extends Storable {
      * @param lineStyle new line style
      */
     public void setLineStyle(LineStyle lineStyle) {
+        checkModifiable();
         mLineStyle = lineStyle;
     }
 
@@ -242,6 +302,7 @@ public class GeoDataStyle extends Storable {
      * @param width width of lines in pixels
      */
     public void setLineStyle(int color, float width) {
+        checkModifiable();
         // check if style exists
         if (mLineStyle == null) {
             mLineStyle = new LineStyle();
@@ -258,6 +319,7 @@ public class GeoDataStyle extends Storable {
      * @param color color of inner area
      */
     public void setPolyStyle(int color) {
+        checkModifiable();
         if (mLineStyle == null) {
             mLineStyle = new LineStyle();
             mLineStyle.setDrawBase(false);
@@ -793,6 +855,142 @@ public class GeoDataStyle extends Storable {
         }
     }
 
+    //*************************************************
+    // CACHE
+    //*************************************************
+
+    /**
+     * Cache of styles, that allows to share single instance of identical styles among
+     * many objects, typically points of single pack with same icon. Styles are identified
+     * by their serialized form, so identical style is decoded only once.
+     * <br><br>
+     * Styles obtained from cache are marked as shared (see {@link #isShared()}) and must be
+     * modified only after copy, see {@link locus.api.objects.GeoData#getStyleNormalEditable()}.
+     * Cache is not thread-safe.
+     */
+    public static class Cache {
+
+        // maximal number of cached styles
+        private final int mMaxSize;
+        // cached styles, mapped by serialized form
+        private final HashMap<RawKey, GeoDataStyle> mStyles;
+
+        /**
+         * Create cache with default size.
+         */
+        public Cache() {
+            this(256);
+        }
+
+        /**
+         * Create cache with certain size. Styles over limit are not shared.
+         *
+         * @param maxSize maximal number of cached styles
+         */
+        public Cache(int maxSize) {
+            this.mMaxSize = maxSize;
+            this.mStyles = new HashMap<>();
+        }
+
+        /**
+         * Read style from reader, or return existing instance of identical style.
+         *
+         * @param dr reader positioned at serialized style
+         * @return read or shared style
+         * @throws IOException thrown in case of invalid data
+         */
+        public GeoDataStyle read(DataReaderBigEndian dr) throws IOException {
+            // read serialized form
+            int version = dr.readInt();
+            int size = dr.readInt();
+            if (size < 0) {
+                throw new IOException("Invalid size of style:" + size);
+            }
+            byte[] raw = new byte[8 + size];
+            writeInt(raw, 0, version);
+            writeInt(raw, 4, size);
+            dr.readBytes(raw, 8, size);
+
+            // find existing style
+            RawKey key = new RawKey(raw);
+            GeoDataStyle style = mStyles.get(key);
+            if (style != null) {
+                return style;
+            }
+
+            // decode new style
+            style = new GeoDataStyle();
+            style.read(raw);
+            if (mStyles.size() < mMaxSize) {
+                style.mShared = true;
+                mStyles.put(key, style);
+            }
+            return style;
+        }
+
+        /**
+         * Get number of cached styles.
+         *
+         * @return number of styles
+         */
+        public int size() {
+            return mStyles.size();
+        }
+
+        /**
+         * Remove all cached styles. Already shared styles stay marked as shared.
+         */
+        public void clear() {
+            mStyles.clear();
+        }
+
+        private static void writeInt(byte[] data, int offset, int v) {
+            data[offset] = (byte) (v >>> 24);
+            data[offset + 1] = (byte) (v >>> 16);
+            data[offset + 2] = (byte) (v >>> 8);
+            data[offset + 3] = (byte) v;
+        }
+    }
+
+    /**
+     * Serialized form of style, used as key in hash maps for search of identical styles.
+     */
+    public static final class RawKey {
+
+        private final byte[] mData;
+        private final int mHash;
+
+        /**
+         * Create key for certain style.
+         *
+         * @param style style
+         */
+        public RawKey(GeoDataStyle style) {
+            this(style.getAsBytes());
+        }
+
+        /**
+         * Create key for style in serialized form.
+         *
+         * @param data serialized style
+         */
+        public RawKey(byte[] data) {
+            this.mData = data;
+            this.mHash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RawKey && mHash == ((RawKey) o).mHash
+                    && Arrays.equals(mData, ((RawKey) o).mData);
+        }
+    }
+
     //*************************************************
     // STORABLE
     //*************************************************
@@ -805,6 +1003,8 @@ public class GeoDataStyle extends Storable {
     @Override
     protected void readObject(int version, DataReaderBigEndian dr)
             throws IOException {
+        checkModifiable();
+
         // read core
         mId = dr.readString();
         mName = dr.readString();
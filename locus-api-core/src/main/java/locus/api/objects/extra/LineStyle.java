@@ -96,6 +96,15 @@ public class LineStyle extends Storable {
     // color of fill
     private int mColorFill;
 
+    static {
+        registerFactory(LineStyle.class, new Factory<LineStyle>() {
+            @Override
+            public LineStyle create() {
+                return new LineStyle();
+            }
+        });
+    }
+
     /**
      * Default empty constructor.
      */
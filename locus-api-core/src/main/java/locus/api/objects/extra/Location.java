@@ -49,6 +49,26 @@ public class Location extends Storable {
     // require fast, even little bit dangerous, access. Be careful.
     public double longitude;
 
+    // version of compact layout of location, see VERSION_FLAG_COMPACT
+    private static final int VERSION_COMPACT = 0;
+
+    // flags of values present in compact encoding
+    private static final int FLAG_ALTITUDE = 1;
+    private static final int FLAG_EXTRA_BASIC = 2;
+    private static final int FLAG_EXTRA_SENSOR = 4;
+    private static final int FLAG_ACCURACY = 8;
+    private static final int FLAG_BEARING = 16;
+    private static final int FLAG_SPEED = 32;
+
+    // flags of sensor values present in compact encoding
+    private static final int SENSOR_HR = 1;
+    private static final int SENSOR_CADENCE = 2;
+    private static final int SENSOR_SPEED = 4;
+    private static final int SENSOR_POWER = 8;
+    private static final int SENSOR_STRIDES = 16;
+    private static final int SENSOR_BATTERY = 32;
+    private static final int SENSOR_TEMPERATURE = 64;
+
     // flag if altitude is set
     private boolean mHasAltitude;
     // altitude value
@@ -178,9 +198,34 @@ public class Location extends Storable {
             return 1;
         }
 
+        @Override
+        protected int getVersion(DataWriterBigEndian dw) {
+            return dw.isCompactEncoding() ? VERSION_FLAG_COMPACT : getVersion();
+        }
+
         @Override
         protected void readObject(int version, DataReaderBigEndian dr)
                 throws IOException {
+            // compact encoding, V0
+            if ((version & VERSION_FLAG_COMPACT) != 0) {
+                int flags = dr.readVarInt();
+                hasHr = (flags & SENSOR_HR) != 0;
+                hr = hasHr ? dr.readVarIntSigned() : 0;
+                hasCadence = (flags & SENSOR_CADENCE) != 0;
+                cadence = hasCadence ? dr.readVarIntSigned() : 0;
+                hasSpeed = (flags & SENSOR_SPEED) != 0;
+                speed = hasSpeed ? dr.readFloat() : 0.0f;
+                hasPower = (flags & SENSOR_POWER) != 0;
+                power = hasPower ? dr.readFloat() : 0.0f;
+                hasStrides = (flags & SENSOR_STRIDES) != 0;
+                strides = hasStrides ? dr.readVarIntSigned() : 0;
+                hasBattery = (flags & SENSOR_BATTERY) != 0;
+                battery = hasBattery ? dr.readVarIntSigned() : 0;
+                hasTemperature = (flags & SENSOR_TEMPERATURE) != 0;
+                temperature = hasTemperature ? dr.readFloat() : 0.0f;
+                return;
+            }
+
             hasHr = dr.readBoolean();
             hr = dr.readInt();
             hasCadence = dr.readBoolean();
@@ -201,6 +246,40 @@ public class Location extends Storable {
 
         @Override
         protected void writeObject(DataWriterBigEndian dw) throws IOException {
+            // compact encoding
+            if (dw.isCompactEncoding()) {
+                int flags = (hasHr ? SENSOR_HR : 0)
+                        | (hasCadence ? SENSOR_CADENCE : 0)
+                        | (hasSpeed ? SENSOR_SPEED : 0)
+                        | (hasPower ? SENSOR_POWER : 0)
+                        | (hasStrides ? SENSOR_STRIDES : 0)
+                        | (hasBattery ? SENSOR_BATTERY : 0)
+                        | (hasTemperature ? SENSOR_TEMPERATURE : 0);
+                dw.writeVarInt(flags);
+                if (hasHr) {
+                    dw.writeVarIntSigned(hr);
+                }
+                if (hasCadence) {
+                    dw.writeVarIntSigned(cadence);
+                }
+                if (hasSpeed) {
+                    dw.writeFloat(speed);
+                }
+                if (hasPower) {
+                    dw.writeFloat(power);
+                }
+                if (hasStrides) {
+                    dw.writeVarIntSigned(strides);
+                }
+                if (hasBattery) {
+                    dw.writeVarIntSigned(battery);
+                }
+                if (hasTemperature) {
+                    dw.writeFloat(temperature);
+                }
+                return;
+            }
+
             dw.writeBoolean(hasHr);
             dw.writeInt(hr);
             dw.writeBoolean(hasCadence);
@@ -223,6 +302,15 @@ public class Location extends Storable {
         }
     }
 
+    static {
+        registerFactory(Location.class, new Factory<Location>() {
+            @Override
+            public Location create() {
+                return new Location();
+            }
+        });
+    }
+
     /**
      * Empty constructor used for {@link Storable}
      * <br>
@@ -293,8 +381,19 @@ public class Location extends Storable {
         return 2;
     }
 
+    @Override
+    protected int getVersion(DataWriterBigEndian dw) {
+        return dw.isCompactEncoding() ? VERSION_FLAG_COMPACT | VERSION_COMPACT : getVersion();
+    }
+
     @Override
     protected void readObject(int version, DataReaderBigEndian dr) throws IOException {
+        // compact encoding
+        if ((version & VERSION_FLAG_COMPACT) != 0) {
+            readObjectCompact(version & ~VERSION_FLAG_COMPACT, dr);
+            return;
+        }
+
         mId = dr.readLong();
         provider = dr.readString();
         time = dr.readLong();
@@ -302,6 +401,8 @@ public class Location extends Storable {
         longitude = dr.readDouble();
         mHasAltitude = dr.readBoolean();
         mAltitude = dr.readDouble();
+        mExtraBasic = null;
+        mExtraSensor = null;
 
         // red basic data
         if (dr.readBoolean()) {
@@ -333,6 +434,50 @@ public class Location extends Storable {
         }
     }
 
+    /**
+     * Read location in compact encoding, where only present values are stored.
+     *
+     * @param version version of compact layout
+     */
+    private void readObjectCompact(int version, DataReaderBigEndian dr) throws IOException {
+        int flags = dr.readVarInt();
+        mId = dr.readVarLongSigned();
+        provider = dr.readStringVar();
+        time = dr.readVarLongSigned();
+        latitude = dr.readDouble();
+        longitude = dr.readDouble();
+        mHasAltitude = (flags & FLAG_ALTITUDE) != 0;
+        mAltitude = mHasAltitude ? dr.readDouble() : 0.0;
+        mExtraBasic = null;
+        mExtraSensor = null;
+
+        // basic data
+        if ((flags & FLAG_EXTRA_BASIC) != 0) {
+            mExtraBasic = new ExtraBasic();
+            if ((flags & FLAG_ACCURACY) != 0) {
+                mExtraBasic.hasAccuracy = true;
+                mExtraBasic.accuracy = dr.readFloat();
+            }
+            if ((flags & FLAG_BEARING) != 0) {
+                mExtraBasic.hasBearing = true;
+                mExtraBasic.bearing = dr.readFloat();
+            }
+            if ((flags & FLAG_SPEED) != 0) {
+                mExtraBasic.hasSpeed = true;
+                mExtraBasic.speed = dr.readFloat();
+            }
+            if (!mExtraBasic.hasData()) {
+                mExtraBasic = null;
+            }
+        }
+
+        // sensor data
+        if ((flags & FLAG_EXTRA_SENSOR) != 0) {
+            mExtraSensor = new ExtraSensor();
+            mExtraSensor.read(dr);
+        }
+    }
+
     private void readSensorVersion1(DataReaderBigEndian dr) {
         mExtraSensor = new ExtraSensor();
         mExtraSensor.hasHr = dr.readBoolean();
@@ -351,6 +496,12 @@ public class Location extends Storable {
 
     @Override
     protected void writeObject(DataWriterBigEndian dw) throws IOException {
+        // compact encoding
+        if (dw.isCompactEncoding()) {
+            writeObjectCompact(dw);
+            return;
+        }
+
         dw.writeLong(mId);
         dw.writeString(provider);
         dw.writeLong(time);
@@ -381,6 +532,49 @@ public class Location extends Storable {
         }
     }
 
+    /**
+     * Write location in compact encoding, where only present values are stored.
+     */
+    private void writeObjectCompact(DataWriterBigEndian dw) throws IOException {
+        boolean basic = mExtraBasic != null && mExtraBasic.hasData();
+        boolean sensor = mExtraSensor != null && mExtraSensor.hasData();
+        int flags = (mHasAltitude ? FLAG_ALTITUDE : 0)
+                | (basic ? FLAG_EXTRA_BASIC : 0)
+                | (sensor ? FLAG_EXTRA_SENSOR : 0);
+        if (basic) {
+            flags |= (mExtraBasic.hasAccuracy ? FLAG_ACCURACY : 0)
+                    | (mExtraBasic.hasBearing ? FLAG_BEARING : 0)
+                    | (mExtraBasic.hasSpeed ? FLAG_SPEED : 0);
+        }
+        dw.writeVarInt(flags);
+        dw.writeVarLongSigned(mId);
+        dw.writeStringVar(provider);
+        dw.writeVarLongSigned(time);
+        dw.writeDouble(latitude);
+        dw.writeDouble(longitude);
+        if (mHasAltitude) {
+            dw.writeDouble(mAltitude);
+        }
+
+        // basic data
+        if (basic) {
+            if (mExtraBasic.hasAccuracy) {
+                dw.writeFloat(mExtraBasic.accuracy);
+            }
+            if (mExtraBasic.hasBearing) {
+                dw.writeFloat(mExtraBasic.bearing);
+            }
+            if (mExtraBasic.hasSpeed) {
+                dw.writeFloat(mExtraBasic.speed);
+            }
+        }
+
+        // sensor data
+        if (sensor) {
+            mExtraSensor.write(dw);
+        }
+    }
+
     //*************************************************
     // GETTER & SETTERS
     //*************************************************
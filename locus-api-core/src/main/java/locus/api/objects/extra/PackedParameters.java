@@ -0,0 +1,419 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.objects.extra;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import locus.api.utils.DataReaderBigEndian;
+import locus.api.utils.DataWriterBigEndian;
+import locus.api.utils.Utils;
+
+/**
+ * Compact storage of parameters of {@link GeoDataExtra}.
+ * <br><br>
+ * Values of all parameters are stored in single byte buffer, referenced by offset and length
+ * from arrays sorted by key. Texts are decoded from buffer on first access and cached, numbers
+ * are parsed directly from buffer. Space of removed or replaced values is reclaimed once it
+ * exceeds half of buffer.
+ */
+final class PackedParameters {
+
+    // empty arrays shared by empty containers
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    // sorted keys
+    private int[] mKeys;
+    // offsets of values in buffer
+    private int[] mOffsets;
+    // lengths of values
+    private int[] mLengths;
+    // decoded texts, created on first access
+    private String[] mTexts;
+    // number of parameters
+    private int mSize;
+
+    // buffer with values
+    private byte[] mBuffer;
+    // used part of buffer
+    private int mBufferSize;
+    // number of unused bytes in buffer
+    private int mGarbage;
+
+    PackedParameters() {
+        clear();
+    }
+
+    //*************************************************
+    // STORABLE
+    //*************************************************
+
+    /**
+     * Read parameters in format of {@link GeoDataExtra}. Values are copied directly
+     * into shared buffer.
+     *
+     * @param dr      reader
+     * @param compact {@code true} for compact encoding, where count, differences of keys
+     *                and lengths are stored as variable-length values
+     * @throws IOException in case of invalid data
+     */
+    void read(DataReaderBigEndian dr, boolean compact) throws IOException {
+        clear();
+        int size = compact ? dr.readVarInt() : dr.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid number of parameters:" + size);
+        }
+        // count is not trusted, each parameter takes at least two (compact) or eight bytes
+        ensureKeysCapacity(Math.min(size, dr.available() / (compact ? 2 : 8)));
+        int key = 0;
+        for (int i = 0; i < size; i++) {
+            int length;
+            if (compact) {
+                key += dr.readVarIntSigned();
+                length = dr.readVarInt();
+            } else {
+                key = dr.readInt();
+                length = dr.readInt();
+            }
+            if (length < 0) {
+                throw new IOException("Invalid length of parameter:" + length);
+            }
+            int offset = appendBuffer(length);
+            dr.readBytes(mBuffer, offset, length);
+
+            // stored parameters are sorted, so just append them
+            if (mSize == 0 || mKeys[mSize - 1] < key) {
+                ensureKeysCapacity(mSize + 1);
+                mKeys[mSize] = key;
+                mOffsets[mSize] = offset;
+                mLengths[mSize] = length;
+                mSize++;
+            } else {
+                putEntry(key, offset, length);
+            }
+        }
+    }
+
+    /**
+     * Write parameters in format of {@link GeoDataExtra}.
+     *
+     * @param dw      writer
+     * @param compact {@code true} for compact encoding
+     */
+    void write(DataWriterBigEndian dw, boolean compact) {
+        if (compact) {
+            dw.writeVarInt(mSize);
+        } else {
+            dw.writeInt(mSize);
+        }
+        int lastKey = 0;
+        for (int i = 0; i < mSize; i++) {
+            if (compact) {
+                dw.writeVarIntSigned(mKeys[i] - lastKey);
+                dw.writeVarInt(mLengths[i]);
+                lastKey = mKeys[i];
+            } else {
+                dw.writeInt(mKeys[i]);
+                dw.writeInt(mLengths[i]);
+            }
+            if (mLengths[i] > 0) {
+                dw.write(mBuffer, mOffsets[i], mLengths[i]);
+            }
+        }
+    }
+
+    //*************************************************
+    // ACCESS
+    //*************************************************
+
+    int size() {
+        return mSize;
+    }
+
+    boolean contains(int key) {
+        return indexOfKey(key) >= 0;
+    }
+
+    /**
+     * Get parameter as text.
+     *
+     * @param key key of parameter
+     * @return decoded text or 'null' if parameter does not exist
+     */
+    String getText(int key) {
+        int index = indexOfKey(key);
+        if (index < 0) {
+            return null;
+        }
+        if (mTexts == null) {
+            mTexts = new String[mKeys.length];
+        }
+        String text = mTexts[index];
+        if (text == null) {
+            text = new String(mBuffer, mOffsets[index], mLengths[index], Utils.UTF8);
+            mTexts[index] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Get parameter as integer number, parsed directly from stored text.
+     *
+     * @param key          key of parameter
+     * @param defaultValue value returned if parameter does not exist or is not a number
+     * @return parsed value
+     */
+    long getLong(int key, long defaultValue) {
+        int index = indexOfKey(key);
+        if (index < 0) {
+            return defaultValue;
+        }
+        int pos = mOffsets[index];
+        int end = pos + mLengths[index];
+        if (pos == end) {
+            return defaultValue;
+        }
+        boolean negative = false;
+        if (mBuffer[pos] == '-' || mBuffer[pos] == '+') {
+            negative = mBuffer[pos] == '-';
+            pos++;
+            if (pos == end) {
+                return defaultValue;
+            }
+        }
+        if (end - pos > 18) {
+            // possible overflow, use slow way
+            try {
+                return Long.parseLong(getText(key));
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        long value = 0L;
+        for (; pos < end; pos++) {
+            int digit = mBuffer[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                return defaultValue;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Get parameter stored as single byte.
+     *
+     * @param key          key of parameter
+     * @param defaultValue value returned if parameter does not exist or has different length
+     * @return stored byte
+     */
+    byte getByte(int key, byte defaultValue) {
+        int index = indexOfKey(key);
+        if (index < 0 || mLengths[index] != 1) {
+            return defaultValue;
+        }
+        return mBuffer[mOffsets[index]];
+    }
+
+    /**
+     * Get copy of raw value of parameter.
+     *
+     * @param key key of parameter
+     * @return copy of value or 'null' if parameter does not exist
+     */
+    byte[] getBytes(int key) {
+        int index = indexOfKey(key);
+        if (index < 0) {
+            return null;
+        }
+        return Arrays.copyOfRange(mBuffer, mOffsets[index], mOffsets[index] + mLengths[index]);
+    }
+
+    //*************************************************
+    // MODIFICATION
+    //*************************************************
+
+    /**
+     * Set text value of parameter.
+     *
+     * @param key  key of parameter
+     * @param text text value
+     */
+    void putText(int key, String text) {
+        put(key, Utils.doStringToBytes(text));
+        mTexts[indexOfKey(key)] = text;
+    }
+
+    /**
+     * Set raw value of parameter. Value is copied into buffer.
+     *
+     * @param key  key of parameter
+     * @param data raw value
+     */
+    void put(int key, byte[] data) {
+        remove(key);
+        int offset = appendBuffer(data.length);
+        System.arraycopy(data, 0, mBuffer, offset, data.length);
+        putEntry(key, offset, data.length);
+    }
+
+    /**
+     * Remove parameter.
+     *
+     * @param key key of parameter
+     */
+    void remove(int key) {
+        int index = indexOfKey(key);
+        if (index < 0) {
+            return;
+        }
+        mGarbage += mLengths[index];
+        int move = mSize - index - 1;
+        System.arraycopy(mKeys, index + 1, mKeys, index, move);
+        System.arraycopy(mOffsets, index + 1, mOffsets, index, move);
+        System.arraycopy(mLengths, index + 1, mLengths, index, move);
+        if (mTexts != null) {
+            System.arraycopy(mTexts, index + 1, mTexts, index, move);
+            mTexts[mSize - 1] = null;
+        }
+        mSize--;
+
+        // reclaim unused space
+        if (mSize == 0) {
+            mBufferSize = 0;
+            mGarbage = 0;
+        } else if (mGarbage > 64 && mGarbage > mBufferSize / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Remove all parameters.
+     */
+    void clear() {
+        mKeys = EMPTY_INTS;
+        mOffsets = EMPTY_INTS;
+        mLengths = EMPTY_INTS;
+        mTexts = null;
+        mSize = 0;
+        mBuffer = EMPTY_BYTES;
+        mBufferSize = 0;
+        mGarbage = 0;
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private int indexOfKey(int key) {
+        int lo = 0;
+        int hi = mSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midKey = mKeys[mid];
+            if (midKey < key) {
+                lo = mid + 1;
+            } else if (midKey > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~lo;
+    }
+
+    /**
+     * Insert entry for value already stored in buffer.
+     */
+    private void putEntry(int key, int offset, int length) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            // replace existing value (may happen only for invalid stored data)
+            mGarbage += mLengths[index];
+            mOffsets[index] = offset;
+            mLengths[index] = length;
+            if (mTexts != null) {
+                mTexts[index] = null;
+            }
+            return;
+        }
+        index = ~index;
+        ensureKeysCapacity(mSize + 1);
+        int move = mSize - index;
+        System.arraycopy(mKeys, index, mKeys, index + 1, move);
+        System.arraycopy(mOffsets, index, mOffsets, index + 1, move);
+        System.arraycopy(mLengths, index, mLengths, index + 1, move);
+        if (mTexts != null) {
+            System.arraycopy(mTexts, index, mTexts, index + 1, move);
+        } else {
+            mTexts = new String[mKeys.length];
+        }
+        mKeys[index] = key;
+        mOffsets[index] = offset;
+        mLengths[index] = length;
+        mTexts[index] = null;
+        mSize++;
+    }
+
+    private void ensureKeysCapacity(int capacity) {
+        if (capacity <= mKeys.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mKeys.length * 3 / 2 + 1);
+        mKeys = Arrays.copyOf(mKeys, newCapacity);
+        mOffsets = Arrays.copyOf(mOffsets, newCapacity);
+        mLengths = Arrays.copyOf(mLengths, newCapacity);
+        if (mTexts != null) {
+            mTexts = Arrays.copyOf(mTexts, newCapacity);
+        }
+    }
+
+    /**
+     * Reserve space at end of buffer.
+     *
+     * @return offset of reserved space
+     */
+    private int appendBuffer(int length) {
+        int offset = mBufferSize;
+        if (offset + length > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(offset + length, mBuffer.length * 2));
+        }
+        mBufferSize += length;
+        return offset;
+    }
+
+    /**
+     * Move all used values to start of new buffer.
+     */
+    private void compact() {
+        byte[] buffer = new byte[mBufferSize - mGarbage];
+        int pos = 0;
+        for (int i = 0; i < mSize; i++) {
+            System.arraycopy(mBuffer, mOffsets[i], buffer, pos, mLengths[i]);
+            mOffsets[i] = pos;
+            pos += mLengths[i];
+        }
+        mBuffer = buffer;
+        mBufferSize = pos;
+        mGarbage = 0;
+    }
+}
@@ -41,9 +41,21 @@ public class Point extends GeoData {
     // location of this point
     private Location loc;
     /**
-     * Additional geoCaching data
+     * Additional geoCaching data. In case, data were not decoded during read
+     * (see {@link #DECODE_GEOCACHING}), field is 'null', use {@link #getGcData()} instead.
      */
     public GeocachingData gcData;
+    // not decoded geocaching data, in raw form
+    private byte[] mRawGcData;
+
+    static {
+        registerFactory(Point.class, new Factory<Point>() {
+            @Override
+            public Point create() {
+                return new Point();
+            }
+        });
+    }
 
     /**
      * Empty constructor.
@@ -98,10 +110,7 @@ public class Point extends GeoData {
     // EXTRA CALLBACK
 
     public String getExtraCallback() {
-        if (extraData != null) {
-            return extraData.getParameter(GeoDataExtra.PAR_INTENT_EXTRA_CALLBACK);
-        }
-        return null;
+        return getParameter(GeoDataExtra.PAR_INTENT_EXTRA_CALLBACK);
     }
 
     /**
@@ -154,10 +163,7 @@ public class Point extends GeoData {
     }
 
     public String getExtraOnDisplay() {
-        if (extraData != null) {
-            return extraData.getParameter(GeoDataExtra.PAR_INTENT_EXTRA_ON_DISPLAY);
-        }
-        return null;
+        return getParameter(GeoDataExtra.PAR_INTENT_EXTRA_ON_DISPLAY);
     }
 
     /**
@@ -203,18 +209,61 @@ public class Point extends GeoData {
 
     // GEOCACHING DATA
 
+    /**
+     * Check if point has geocaching data, without decoding them.
+     *
+     * @return {@code true} if point has geocaching data
+     */
+    public boolean hasGcData() {
+        return gcData != null || mRawGcData != null;
+    }
+
+    /**
+     * Get geocaching data of point. Data, that were not decoded during read (reader with
+     * decode mask without {@link #DECODE_GEOCACHING}), are decoded on first access.
+     * Until then, data are kept in raw form and written back without any change.
+     *
+     * @return geocaching data or 'null' if point has no data
+     */
+    public GeocachingData getGcData() {
+        if (gcData == null && mRawGcData != null) {
+            byte[] raw = mRawGcData;
+            mRawGcData = null;
+            try {
+                gcData = readGeocachingData(new DataReaderBigEndian(raw));
+            } catch (Exception e) {
+                Logger.logE(TAG, "getGcData()", e);
+                gcData = null;
+            }
+        }
+        return gcData;
+    }
+
+    /**
+     * Set geocaching data of point.
+     *
+     * @param gcData geocaching data or 'null' to remove them
+     */
+    public void setGcData(GeocachingData gcData) {
+        this.gcData = gcData;
+        this.mRawGcData = null;
+    }
+
     public byte[] getGeocachingData() {
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
         try {
-            DataWriterBigEndian dw = new DataWriterBigEndian();
             writeGeocachingData(dw);
             return dw.toByteArray();
         } catch (IOException e) {
             Logger.logE(TAG, "getGeocachingData()", e);
             return null;
+        } finally {
+            dw.recycle();
         }
     }
 
     public void setGeocachingData(byte[] data) {
+        mRawGcData = null;
         try {
             gcData = readGeocachingData(new DataReaderBigEndian(data));
         } catch (Exception e) {
@@ -223,6 +272,27 @@ public class Point extends GeoData {
         }
     }
 
+    //*************************************************
+    // PARTIAL DECODING
+    //*************************************************
+
+    @Override
+    public boolean isDecodedFully() {
+        return super.isDecodedFully() && mRawGcData == null;
+    }
+
+    @Override
+    public void decodeFully() throws IOException {
+        super.decodeFully();
+        if (mRawGcData != null) {
+            byte[] raw = mRawGcData;
+            mRawGcData = null;
+            if (gcData == null) {
+                gcData = readGeocachingData(new DataReaderBigEndian(raw));
+            }
+        }
+    }
+
     //*************************************************
     // STORABLE
     //*************************************************
@@ -244,7 +314,13 @@ public class Point extends GeoData {
         readStyles(dr);
 
         // read geocaching
-        gcData = readGeocachingData(dr);
+        mRawGcData = null;
+        if ((dr.getDecodeMask() & DECODE_GEOCACHING) != 0) {
+            gcData = readGeocachingData(dr);
+        } else {
+            gcData = null;
+            mRawGcData = readRawOptional(dr, 1);
+        }
 
         // V1
         if (version >= 1) {
@@ -288,7 +364,9 @@ public class Point extends GeoData {
     }
 
     private void writeGeocachingData(DataWriterBigEndian dw) throws IOException {
-        if (gcData != null) {
+        if (gcData == null && mRawGcData != null) {
+            dw.write(mRawGcData);
+        } else if (gcData != null) {
             dw.writeBoolean(true);
             gcData.write(dw);
         } else {
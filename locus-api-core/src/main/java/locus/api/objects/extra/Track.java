@@ -26,6 +26,7 @@ import locus.api.utils.DataWriterBigEndian;
 import locus.api.utils.Logger;
 
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -35,14 +36,24 @@ public class Track extends GeoData {
     // tag for logger
     private static final String TAG = "Track";
 
+    // empty array of breaks
+    private static final int[] EMPTY_BREAKS = new int[0];
+
     /**
      * Locations of this track
      */
     List<Location> points;
-    // list containing all track break points. Break point is defined as index of point, after
+    // array of all track break points. Break point is defined as index of point, after
     // which follow break in track. So break point "1" means, that after second point (point with
-    // index 1) follow a break.
-    List<Integer> breaks;
+    // index 1) follow a break. Only first 'breaksCount' items are valid
+    int[] breaks;
+    // number of breaks
+    int breaksCount;
+    // flag if breaks are sorted without duplicates. Other breaks are possible only over
+    // deprecated 'getBreaks()' list or in old data, they are sorted on first access
+    private boolean mBreaksSorted = true;
+    // counter of all changes of breaks
+    private int mBreaksChanges;
     /**
      * Extra points (also may include routing data)
      */
@@ -53,9 +64,38 @@ public class Track extends GeoData {
     private int mActivityType;
     // track statistics (generated statistics of track)
     private TrackStats mStats;
+    // flag if points should be stored in packed (column-wise) format
+    private boolean mPointsPacked;
+    // cached bounds of whole track, 'null' if not computed yet
+    private BoundingBox mBounds;
+    // cached bounds of segments
+    private BoundingBox[] mSegmentBounds;
+    // state of points and breaks, for which are bounds valid
+    private List<Location> mBoundsPoints;
+    private int mBoundsPointsCount;
+    private int mBoundsPointsChanges;
+    private int mBoundsBreaksChanges;
+    // not decoded points in raw form (list of locations or packed points)
+    private byte[] mRawPoints;
+    // flag if raw points are in packed format
+    private boolean mRawPointsPacked;
+    // not decoded waypoints in raw form
+    private byte[] mRawWaypoints;
+    // placeholder lists used instead of not decoded points and waypoints
+    private List<Location> mRawPointsHolder;
+    private List<Point> mRawWaypointsHolder;
 
     // CONSTRUCTOR
 
+    static {
+        registerFactory(Track.class, new Factory<Track>() {
+            @Override
+            public Track create() {
+                return new Track();
+            }
+        });
+    }
+
     /**
      * Default constructor.
      */
@@ -63,7 +103,8 @@ public class Track extends GeoData {
         id = -1;
         name = "";
         points = new ArrayList<>();
-        breaks = new ArrayList<>();
+        breaks = EMPTY_BREAKS;
+        breaksCount = 0;
         waypoints = new ArrayList<>();
         extraData = null;
         styleNormal = null;
@@ -88,6 +129,14 @@ public class Track extends GeoData {
         // V5
 
         mActivityType = 0;
+
+        // V6
+
+        mPointsPacked = false;
+
+        // V7
+
+        invalidateBounds();
     }
 
     //*************************************************
@@ -96,15 +145,42 @@ public class Track extends GeoData {
 
     // POINTS
 
+    /**
+     * Get point on certain index. In case, points are stored in compact container
+     * (see {@link #isPointsCompact()}), returned object is only a copy of stored point.
+     *
+     * @param index index of point
+     * @return point
+     */
     public Location getPoint(int index) {
+        ensurePoints();
         return points.get(index);
     }
 
+    /**
+     * Fill point on certain index into existing location object. In case of compact storage
+     * of points, no new object is created.
+     *
+     * @param index index of point
+     * @param loc   location to fill
+     * @return filled location object
+     */
+    public Location getPoint(int index, Location loc) {
+        ensurePoints();
+        if (points instanceof TrackPoints) {
+            return ((TrackPoints) points).get(index, loc);
+        }
+        loc.set(points.get(index));
+        return loc;
+    }
+
     public int getPointsCount() {
+        ensurePoints();
         return points.size();
     }
 
     public List<Location> getPoints() {
+        ensurePoints();
         return points;
     }
 
@@ -117,24 +193,490 @@ public class Track extends GeoData {
         return true;
     }
 
+    /**
+     * Check if points are stored in compact container (primitive arrays instead of separate
+     * {@link Location} objects).
+     *
+     * @return {@code true} if points are stored compact
+     */
+    public boolean isPointsCompact() {
+        return points instanceof TrackPoints;
+    }
+
+    /**
+     * Convert storage of points. Compact container needs much less memory, but modifications
+     * of points returned by {@link #getPoint(int)} are not reflected in track, so enable it
+     * only if all code, that works with track, is aware of it. Points are never stored
+     * compact without this request.
+     *
+     * @param compact {@code true} to store points compact
+     */
+    public void setPointsCompact(boolean compact) {
+        ensurePoints();
+        if (compact == isPointsCompact()) {
+            return;
+        }
+        if (compact) {
+            points = new TrackPoints(points);
+        } else {
+            points = new ArrayList<>(points);
+        }
+    }
+
+    /**
+     * Get points as compact container, useful for bulk access to coordinates.
+     * Points are converted to compact storage if needed.
+     *
+     * @return compact container of points
+     */
+    public TrackPoints getPointsCompact() {
+        setPointsCompact(true);
+        return (TrackPoints) points;
+    }
+
+    /**
+     * Check if points are stored in packed format.
+     *
+     * @return {@code true} if points are packed
+     */
+    public boolean isPointsPacked() {
+        return mPointsPacked;
+    }
+
+    /**
+     * Set if points should be stored in packed (column-wise) format. Packed format is much
+     * smaller and faster to read, but readers with API older then version 6 of Track object
+     * will see track without any points. Enable it only if receiver is known to support it.
+     *
+     * @param pointsPacked {@code true} to store points packed
+     */
+    public void setPointsPacked(boolean pointsPacked) {
+        this.mPointsPacked = pointsPacked;
+    }
+
+    // BOUNDS
+
+    /**
+     * Get bounding box of whole track. Bounds are computed lazily and cached, cache is
+     * invalidated by change of list of points, number of points, breaks or by any change of
+     * compact storage of points. Cache is not able to detect replacement of point in list
+     * of points or modification of existing {@link Location} object of track, so bounds may
+     * be stale in such case. Call {@link #invalidateBounds()} after such change. Bounds
+     * written together with track are always computed from current points.
+     * <br><br>
+     * Returned object must not be modified.
+     *
+     * @return bounds of track, not valid box for track without points
+     */
+    public BoundingBox getBounds() {
+        checkBounds();
+        return mBounds;
+    }
+
+    /**
+     * Get bounding box of certain segment of track, defined by breaks.
+     * Returned object must not be modified.
+     *
+     * @param segment index of segment
+     * @return bounds of segment
+     * @see #getBounds()
+     */
+    public BoundingBox getSegmentBounds(int segment) {
+        checkBounds();
+        return mSegmentBounds[segment];
+    }
+
+    /**
+     * Invalidate cached bounds of track.
+     */
+    public void invalidateBounds() {
+        mBounds = null;
+        mSegmentBounds = null;
+        mBoundsPoints = null;
+        mBoundsBreaksChanges = -1;
+    }
+
+    /**
+     * Check if cached bounds are valid for current points and compute them if not.
+     */
+    private void checkBounds() {
+        sortBreaks();
+        int changes = points instanceof TrackPoints ? ((TrackPoints) points).getChanges() : 0;
+        if (mBounds != null && mBoundsPoints == points && mBoundsBreaksChanges == mBreaksChanges
+                && mBoundsPointsCount == points.size() && mBoundsPointsChanges == changes) {
+            return;
+        }
+
+        // bounds of not decoded points are not known, decode them first
+        ensurePoints();
+        computeBounds();
+    }
+
+    /**
+     * Compute bounds of current points and store them into cache.
+     */
+    private void computeBounds() {
+        int changes = points instanceof TrackPoints ? ((TrackPoints) points).getChanges() : 0;
+
+        // compute bounds of segments
+        int count = points.size();
+        BoundingBox bounds = new BoundingBox();
+        BoundingBox[] segmentBounds = new BoundingBox[getSegmentsCount()];
+        Location loc = new Location();
+        for (int segment = 0; segment < segmentBounds.length; segment++) {
+            BoundingBox box = new BoundingBox();
+            for (int i = Math.min(getSegmentStart(segment), count),
+                    m = getSegmentEnd(segment); i < m; i++) {
+                getPoint(i, loc);
+                box.extend(loc.latitude, loc.longitude);
+            }
+            bounds.extend(box);
+            segmentBounds[segment] = box;
+        }
+        setBounds(bounds, segmentBounds, changes);
+    }
+
+    /**
+     * Store bounds valid for current state of track.
+     */
+    private void setBounds(BoundingBox bounds, BoundingBox[] segmentBounds, int changes) {
+        mBounds = bounds;
+        mSegmentBounds = segmentBounds;
+        mBoundsPoints = points;
+        mBoundsPointsCount = points.size();
+        mBoundsPointsChanges = changes;
+        mBoundsBreaksChanges = mBreaksChanges;
+    }
+
+    /**
+     * Write bounds into writer. Bounds are computed from current points, because cached
+     * bounds may be stale. Only bounds of not decoded points are taken from cache, such
+     * points cannot be modified.
+     */
+    private void writeBounds(DataWriterBigEndian dw) {
+        // segments of not sorted breaks are not defined, write of track does not modify them
+        if (!mBreaksSorted) {
+            dw.writeInt(0);
+            return;
+        }
+        if (isPointsRaw()) {
+            checkBounds();
+        } else {
+            computeBounds();
+        }
+        if (!mBounds.isValid()) {
+            dw.writeInt(0);
+            return;
+        }
+        dw.writeInt(mSegmentBounds.length);
+        writeBox(dw, mBounds);
+        for (BoundingBox box : mSegmentBounds) {
+            writeBox(dw, box);
+        }
+    }
+
+    private static void writeBox(DataWriterBigEndian dw, BoundingBox box) {
+        dw.writeDouble(box.getMinLat());
+        dw.writeDouble(box.getMinLon());
+        dw.writeDouble(box.getMaxLat());
+        dw.writeDouble(box.getMaxLon());
+    }
+
+    /**
+     * Read bounds from reader. Bounds are used as cached bounds, if they match to number
+     * of segments of track.
+     */
+    private void readBounds(DataReaderBigEndian dr) throws IOException {
+        invalidateBounds();
+        int segments = dr.readInt();
+        if (segments <= 0) {
+            return;
+        }
+        BoundingBox bounds = readBox(dr);
+        BoundingBox[] segmentBounds = new BoundingBox[segments];
+        for (int i = 0; i < segments; i++) {
+            segmentBounds[i] = readBox(dr);
+        }
+        if (segments == getSegmentsCount()) {
+            setBounds(bounds, segmentBounds,
+                    points instanceof TrackPoints ? ((TrackPoints) points).getChanges() : 0);
+        }
+    }
+
+    private static BoundingBox readBox(DataReaderBigEndian dr) throws IOException {
+        return new BoundingBox(dr.readDouble(), dr.readDouble(),
+                dr.readDouble(), dr.readDouble());
+    }
+
     // BREAKS
 
+    /**
+     * Get list of track breaks. Returned list is a live view over breaks of track with
+     * common behaviour of {@link List}. Breaks are expected to be sorted, breaks in other
+     * order or duplicated breaks are sorted (and duplicates removed) on first access over
+     * any other method, that works with breaks or segments of track.
+     *
+     * @return list of breaks
+     * @deprecated use {@link #getBreaksCount()}, {@link #getBreak(int)}, {@link #addBreak(int)}
+     * or {@link #setBreaks(int[])} instead, which do not box values
+     */
+    @Deprecated
     public List<Integer> getBreaks() {
-        return breaks;
+        return new AbstractList<Integer>() {
+
+            @Override
+            public Integer get(int index) {
+                checkBreakIndex(index, breaksCount);
+                return breaks[index];
+            }
+
+            @Override
+            public int size() {
+                return breaksCount;
+            }
+
+            @Override
+            public Integer set(int index, Integer element) {
+                checkBreakIndex(index, breaksCount);
+                int prev = breaks[index];
+                breaks[index] = element;
+                checkBreaksOrder(index);
+                mBreaksChanges++;
+                return prev;
+            }
+
+            @Override
+            public void add(int index, Integer element) {
+                checkBreakIndex(index, breaksCount + 1);
+                insertBreak(index, element);
+                checkBreaksOrder(index);
+                modCount++;
+            }
+
+            @Override
+            public Integer remove(int index) {
+                checkBreakIndex(index, breaksCount);
+                int prev = breaks[index];
+                deleteBreak(index);
+                modCount++;
+                return prev;
+            }
+        };
+    }
+
+    /**
+     * Get number of breaks in track.
+     *
+     * @return number of breaks
+     */
+    public int getBreaksCount() {
+        sortBreaks();
+        return breaksCount;
+    }
+
+    /**
+     * Get break on certain index.
+     *
+     * @param index index of break
+     * @return index of point, after which follow break
+     */
+    public int getBreak(int index) {
+        sortBreaks();
+        checkBreakIndex(index, breaksCount);
+        return breaks[index];
+    }
+
+    /**
+     * Get copy of all breaks in track.
+     *
+     * @return sorted indexes of points, after which follow break
+     */
+    public int[] getBreaksArray() {
+        sortBreaks();
+        return Arrays.copyOf(breaks, breaksCount);
+    }
+
+    /**
+     * Set breaks of track. Breaks are sorted and duplicates are removed.
+     *
+     * @param breaks indexes of points, after which follow break
+     */
+    public void setBreaks(int[] breaks) {
+        mBreaksChanges++;
+        if (breaks == null || breaks.length == 0) {
+            this.breaks = EMPTY_BREAKS;
+            this.breaksCount = 0;
+            this.mBreaksSorted = true;
+            return;
+        }
+        this.breaks = breaks.clone();
+        this.breaksCount = breaks.length;
+        this.mBreaksSorted = false;
+        sortBreaks();
+    }
+
+    /**
+     * Add break after point on certain index. Nothing happens if break already exists.
+     * Breaks added in order (for example during recording) are appended in amortized
+     * constant time.
+     *
+     * @param pointIndex index of point, after which follow break
+     */
+    public void addBreak(int pointIndex) {
+        sortBreaks();
+
+        // find position of new break, with fast path for append
+        int index;
+        if (breaksCount == 0 || breaks[breaksCount - 1] < pointIndex) {
+            index = breaksCount;
+        } else {
+            index = Arrays.binarySearch(breaks, 0, breaksCount, pointIndex);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+        }
+
+        insertBreak(index, pointIndex);
+    }
+
+    /**
+     * Remove break on certain index.
+     *
+     * @param index index of break
+     */
+    public void removeBreakAt(int index) {
+        sortBreaks();
+        checkBreakIndex(index, breaksCount);
+        deleteBreak(index);
+    }
+
+    /**
+     * Insert break on certain index of array, array grows in amortized constant time.
+     */
+    private void insertBreak(int index, int pointIndex) {
+        if (breaksCount == breaks.length) {
+            breaks = Arrays.copyOf(breaks, Math.max(4, breaksCount + (breaksCount >> 1)));
+        }
+        System.arraycopy(breaks, index, breaks, index + 1, breaksCount - index);
+        breaks[index] = pointIndex;
+        breaksCount++;
+        mBreaksChanges++;
+    }
+
+    /**
+     * Remove break on certain index of array.
+     */
+    private void deleteBreak(int index) {
+        System.arraycopy(breaks, index + 1, breaks, index, breaksCount - index - 1);
+        breaksCount--;
+        mBreaksChanges++;
+    }
+
+    /**
+     * Check order of break on certain index with its neighbours after direct modification.
+     */
+    private void checkBreaksOrder(int index) {
+        if ((index > 0 && breaks[index - 1] >= breaks[index])
+                || (index < breaksCount - 1 && breaks[index] >= breaks[index + 1])) {
+            mBreaksSorted = false;
+        }
+    }
+
+    /**
+     * Sort breaks and remove duplicates, if they are not sorted yet.
+     */
+    private void sortBreaks() {
+        if (mBreaksSorted) {
+            return;
+        }
+        Arrays.sort(breaks, 0, breaksCount);
+        int count = 0;
+        for (int i = 0; i < breaksCount; i++) {
+            if (count == 0 || breaks[count - 1] != breaks[i]) {
+                breaks[count++] = breaks[i];
+            }
+        }
+        breaksCount = count;
+        mBreaksSorted = true;
+        mBreaksChanges++;
+    }
+
+    private static void checkBreakIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index:" + index + ", size:" + size);
+        }
+    }
+
+    /**
+     * Get number of segments of track, separated by breaks.
+     *
+     * @return number of segments
+     */
+    public int getSegmentsCount() {
+        sortBreaks();
+        return breaksCount + 1;
+    }
+
+    /**
+     * Get index of segment, that contains point on certain index.
+     *
+     * @param pointIndex index of point
+     * @return index of segment
+     */
+    public int getSegmentOfPoint(int pointIndex) {
+        // find first break at or after point
+        sortBreaks();
+        int index = Arrays.binarySearch(breaks, 0, breaksCount, pointIndex);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Get index of first point in segment.
+     *
+     * @param segment index of segment
+     * @return index of first point
+     */
+    public int getSegmentStart(int segment) {
+        sortBreaks();
+        return segment == 0 ? 0 : breaks[segment - 1] + 1;
+    }
+
+    /**
+     * Get index behind last point in segment.
+     *
+     * @param segment index of segment
+     * @return index behind last point (exclusive)
+     */
+    public int getSegmentEnd(int segment) {
+        ensurePoints();
+        sortBreaks();
+        if (segment < breaksCount) {
+            return Math.min(breaks[segment] + 1, points.size());
+        }
+        return points.size();
+    }
+
+    /**
+     * Get points of certain segment.
+     *
+     * @param segment index of segment
+     * @return view over points of segment
+     */
+    public List<Location> getSegmentPoints(int segment) {
+        ensurePoints();
+        int start = Math.min(getSegmentStart(segment), points.size());
+        return points.subList(start, Math.max(start, getSegmentEnd(segment)));
     }
 
     public byte[] getBreaksData() {
-        DataWriterBigEndian dw;
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
         try {
-            dw = new DataWriterBigEndian();
-            for (int i = 0; i < breaks.size(); i++) {
-                dw.writeInt(breaks.get(i));
-            }
+            writeBreaks(dw, false);
             return dw.toByteArray();
-        } catch (Exception e) {
-            Logger.logE(TAG, "getBreaksData()", e);
+        } finally {
+            dw.recycle();
         }
-        return new byte[0];
     }
 
     public void setBreaksData(byte[] data) {
@@ -145,24 +687,68 @@ public class Track extends GeoData {
 
         // read indexes from data
         try {
-            DataReaderBigEndian dr = new DataReaderBigEndian(data);
-            breaks.clear();
-            while (dr.available() > 0) {
-                breaks.add(dr.readInt());
-            }
+            readBreaks(new DataReaderBigEndian(data), data.length);
         } catch (Exception e) {
             Logger.logE(TAG, "setBreaksData()", e);
-            breaks.clear();
+            setBreaks(null);
         }
     }
 
+    /**
+     * Write breaks into writer.
+     *
+     * @param dw        data writer
+     * @param withSize  {@code true} to write size of data before breaks
+     */
+    private void writeBreaks(DataWriterBigEndian dw, boolean withSize) {
+        if (withSize) {
+            dw.writeInt(breaksCount * 4);
+        }
+        for (int i = 0; i < breaksCount; i++) {
+            dw.writeInt(breaks[i]);
+        }
+    }
+
+    /**
+     * Read breaks from reader.
+     *
+     * @param dr   data reader
+     * @param size size of data in bytes
+     * @throws IOException thrown in case of invalid data
+     */
+    private void readBreaks(DataReaderBigEndian dr, int size) throws IOException {
+        if (size <= 0) {
+            setBreaks(null);
+            return;
+        }
+        int[] values = new int[size / 4];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dr.readInt();
+        }
+        dr.skip(size - values.length * 4);
+
+        // old data should be sorted, but order is kept as it is, until breaks are used
+        breaks = values;
+        breaksCount = values.length;
+        mBreaksSorted = true;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i - 1] >= values[i]) {
+                mBreaksSorted = false;
+                break;
+            }
+        }
+        mBreaksChanges++;
+    }
+
     // WAYPOINTS
 
     public Point getWaypoint(int index) {
+        ensureWaypoints();
         return waypoints.get(index);
     }
 
     public List<Point> getWaypoints() {
+        ensureWaypoints();
         return waypoints;
     }
 
@@ -248,13 +834,138 @@ public class Track extends GeoData {
         }
     }
 
+    //*************************************************
+    // PARTIAL DECODING
+    //*************************************************
+
+    @Override
+    public boolean isDecodedFully() {
+        return super.isDecodedFully() && mRawPoints == null && mRawWaypoints == null;
+    }
+
+    @Override
+    public void decodeFully() throws IOException {
+        super.decodeFully();
+        decodePoints();
+        decodeWaypoints();
+    }
+
+    /**
+     * Make sure, points are decoded before access.
+     */
+    private void ensurePoints() {
+        try {
+            decodePoints();
+        } catch (IOException e) {
+            Logger.logE(TAG, "ensurePoints()", e);
+        }
+    }
+
+    /**
+     * Make sure, waypoints are decoded before access.
+     */
+    private void ensureWaypoints() {
+        try {
+            decodeWaypoints();
+        } catch (IOException e) {
+            Logger.logE(TAG, "ensureWaypoints()", e);
+        }
+    }
+
+    /**
+     * Decode waypoints, that were skipped during read.
+     */
+    private void decodeWaypoints() throws IOException {
+        if (mRawWaypoints == null) {
+            return;
+        }
+        byte[] raw = mRawWaypoints;
+        boolean replace = isWaypointsRaw();
+        mRawWaypoints = null;
+        mRawWaypointsHolder = null;
+        if (replace) {
+            waypoints = new DataReaderBigEndian(raw).readListStorable(Point.class);
+        }
+    }
+
+    /**
+     * Decode points, that were skipped during read.
+     */
+    private void decodePoints() throws IOException {
+        if (mRawPoints == null) {
+            return;
+        }
+        byte[] raw = mRawPoints;
+        boolean replace = isPointsRaw();
+        boolean packed = isRawPointsPacked();
+        mRawPoints = null;
+        mRawPointsHolder = null;
+        if (!replace) {
+            return;
+        }
+        DataReaderBigEndian dr = new DataReaderBigEndian(raw);
+        if (packed) {
+            points = readPointsPacked(dr);
+        } else {
+            points = dr.readListStorable(Location.class);
+        }
+    }
+
+    /**
+     * Read points stored in packed format. Points are stored in common list of
+     * {@link Location} objects, so existing code may modify them directly. Compact storage
+     * is used only on request, see {@link #setPointsCompact(boolean)}.
+     */
+    private static List<Location> readPointsPacked(DataReaderBigEndian dr) throws IOException {
+        return new ArrayList<>(TrackPointsCodec.read(dr));
+    }
+
+    /**
+     * Check if points are still in raw form (not decoded and not replaced).
+     */
+    private boolean isPointsRaw() {
+        return mRawPoints != null && points == mRawPointsHolder && points.isEmpty();
+    }
+
+    /**
+     * Check if raw points are stored in packed format.
+     */
+    private boolean isRawPointsPacked() {
+        return mRawPoints != null && mRawPointsPacked;
+    }
+
+    /**
+     * Check if waypoints are still in raw form (not decoded and not replaced).
+     */
+    private boolean isWaypointsRaw() {
+        return mRawWaypoints != null && waypoints == mRawWaypointsHolder
+                && waypoints.isEmpty();
+    }
+
+    /**
+     * Read list of storable objects in raw form, without decoding.
+     */
+    private static byte[] readRawList(DataReaderBigEndian dr) throws IOException {
+        int count = dr.readInt();
+        DataWriterBigEndian dw = DataWriterBigEndian.obtain();
+        try {
+            dw.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                copyRawStorable(dr, dw);
+            }
+            return dw.toByteArray();
+        } finally {
+            dw.recycle();
+        }
+    }
+
     //*************************************************
     // STORABLE PART
     //*************************************************
 
     @Override
     public int getVersion() {
-        return 5;
+        return 7;
     }
 
     @SuppressWarnings("unchecked")
@@ -264,16 +975,31 @@ public class Track extends GeoData {
         name = dr.readString();
 
         // load locations
-        points = dr.readListStorable(Location.class);
+        mRawPoints = null;
+        mRawPointsHolder = null;
+        boolean decodePoints = (dr.getDecodeMask() & DECODE_TRACK_POINTS) != 0;
+        if (decodePoints) {
+            points = dr.readListStorable(Location.class);
+        } else {
+            mRawPoints = readRawList(dr);
+            mRawPointsPacked = false;
+            points = new ArrayList<>();
+            mRawPointsHolder = points;
+        }
 
         // read breaks
-        int breaksSize = dr.readInt();
-        if (breaksSize > 0) {
-            setBreaksData(dr.readBytes(breaksSize));
-        }
+        readBreaks(dr, dr.readInt());
 
         // read waypoints
-        waypoints = dr.readListStorable(Point.class);
+        mRawWaypoints = null;
+        mRawWaypointsHolder = null;
+        if ((dr.getDecodeMask() & DECODE_TRACK_WAYPOINTS) != 0) {
+            waypoints = dr.readListStorable(Point.class);
+        } else {
+            mRawWaypoints = readRawList(dr);
+            waypoints = new ArrayList<>();
+            mRawWaypointsHolder = waypoints;
+        }
 
         // read extra part
         readExtraData(dr);
@@ -336,25 +1062,67 @@ public class Track extends GeoData {
         if (version >= 5) {
             mActivityType = dr.readInt();
         }
+
+        // V6
+
+        mPointsPacked = false;
+        if (version >= 6) {
+            mPointsPacked = dr.readBoolean();
+            if (mPointsPacked) {
+                int size = dr.readInt();
+                if (decodePoints) {
+                    long prevLimit = dr.startSlice(size);
+                    try {
+                        points = readPointsPacked(dr);
+                    } finally {
+                        dr.endSlice(prevLimit);
+                    }
+                } else {
+                    mRawPoints = dr.readBytes(size);
+                    mRawPointsPacked = true;
+                }
+            }
+        }
+
+        // V7
+
+        invalidateBounds();
+        if (version >= 7) {
+            readBounds(dr);
+        }
     }
 
     @Override
     public void writeObject(DataWriterBigEndian dw) throws IOException {
+        // raw points may be written back only in format, in which they were read
+        boolean rawPoints = isPointsRaw();
+        if (rawPoints && mPointsPacked != isRawPointsPacked()) {
+            decodePoints();
+            rawPoints = false;
+        }
+
         dw.writeLong(id);
         dw.writeString(name);
 
-        // write locations
-        dw.writeListStorable(points);
-
-        // write breaks
-        byte[] breaksData = getBreaksData();
-        dw.writeInt(breaksData.length);
-        if (breaksData.length > 0) {
-            dw.write(breaksData);
+        // write locations. Packed points are stored at the end (V6), older readers
+        // get only empty list
+        if (mPointsPacked) {
+            dw.writeInt(0);
+        } else if (rawPoints) {
+            dw.write(mRawPoints);
+        } else {
+            dw.writeListStorable(points);
         }
 
+        // write breaks directly, in same format as 'getBreaksData'
+        writeBreaks(dw, true);
+
         // write waypoints
-        dw.writeListStorable(waypoints);
+        if (isWaypointsRaw()) {
+            dw.write(mRawWaypoints);
+        } else {
+            dw.writeListStorable(waypoints);
+        }
 
         // write extra data
         writeExtraData(dw);
@@ -402,5 +1170,24 @@ public class Track extends GeoData {
         // V5
 
         dw.writeInt(mActivityType);
+
+        // V6
+
+        dw.writeBoolean(mPointsPacked);
+        if (mPointsPacked) {
+            if (rawPoints) {
+                dw.writeInt(mRawPoints.length);
+                dw.write(mRawPoints);
+            } else {
+                int sizePosition = dw.reserveInt();
+                int start = dw.getPosition();
+                TrackPointsCodec.write(dw, points);
+                dw.writeIntAt(sizePosition, dw.getPosition() - start);
+            }
+        }
+
+        // V7
+
+        writeBounds(dw);
     }
 }
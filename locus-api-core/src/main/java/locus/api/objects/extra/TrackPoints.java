@@ -0,0 +1,582 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.objects.extra;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact storage of track points.
+ * <br><br>
+ * Values of points are stored in parallel arrays of primitive values, instead of a separate
+ * {@link Location} object for every point. Optional values (altitude, speed, sensors, ...)
+ * allocate own array only once any point contains them.
+ * <br><br>
+ * Container implements {@code List<Location>}, so it may be set directly into
+ * {@link Track#setPoints(List)}. Keep in mind, that {@link #get(int)} returns new
+ * {@link Location} object filled with values of point, so changes in returned object are
+ * not reflected in container. Use {@link #set(int, Location)} to update point, or
+ * {@link #get(int, Location)} to read points without any allocation.
+ */
+public class TrackPoints extends AbstractList<Location> implements RandomAccess {
+
+    // default ID of location
+    private static final long ID_DEFAULT = -1L;
+
+    // optional columns
+    static final int COL_ALTITUDE = 0;
+    static final int COL_SPEED = 1;
+    static final int COL_BEARING = 2;
+    static final int COL_ACCURACY = 3;
+    static final int COL_HR = 4;
+    static final int COL_CADENCE = 5;
+    static final int COL_SENSOR_SPEED = 6;
+    static final int COL_POWER = 7;
+    static final int COL_STRIDES = 8;
+    static final int COL_TEMPERATURE = 9;
+    static final int COLUMNS_COUNT = 10;
+
+    // number of points
+    int mSize;
+    // IDs of points, 'null' if all points have default ID
+    long[] mIds;
+    // providers of points
+    String[] mProviders;
+    // times of points
+    long[] mTimes;
+    // latitudes of points
+    double[] mLats;
+    // longitudes of points
+    double[] mLons;
+    // altitudes of points, 'null' if no point has altitude
+    double[] mAltitudes;
+    // values of optional columns (except altitude). Floats are stored as their bits
+    final int[][] mValues;
+    // flags of presence of values in optional columns, 'null' if column is not used
+    final boolean[][] mPresent;
+    // counter of all changes of points
+    private int mChanges;
+
+    /**
+     * Create empty container.
+     */
+    public TrackPoints() {
+        this(16);
+    }
+
+    /**
+     * Create empty container with certain initial capacity.
+     *
+     * @param capacity initial capacity
+     */
+    public TrackPoints(int capacity) {
+        capacity = Math.max(capacity, 1);
+        mSize = 0;
+        mIds = null;
+        mProviders = new String[capacity];
+        mTimes = new long[capacity];
+        mLats = new double[capacity];
+        mLons = new double[capacity];
+        mAltitudes = null;
+        mValues = new int[COLUMNS_COUNT][];
+        mPresent = new boolean[COLUMNS_COUNT][];
+    }
+
+    /**
+     * Create container filled with values of existing points.
+     *
+     * @param points points to store
+     */
+    public TrackPoints(Collection<Location> points) {
+        this(points.size());
+        addAll(points);
+    }
+
+    //*************************************************
+    // LIST
+    //*************************************************
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Get point on certain index. Returned object is a copy of stored values.
+     *
+     * @param index index of point
+     * @return new location object
+     */
+    @Override
+    public Location get(int index) {
+        return get(index, new Location());
+    }
+
+    /**
+     * Fill values of point on certain index into existing location object.
+     *
+     * @param index index of point
+     * @param loc   location to fill
+     * @return filled location object
+     */
+    public Location get(int index, Location loc) {
+        checkIndex(index);
+        loc.setId(getId(index));
+        loc.setProvider(mProviders[index]);
+        loc.setTime(mTimes[index]);
+        loc.latitude = mLats[index];
+        loc.longitude = mLons[index];
+        for (int col = 0; col < COLUMNS_COUNT; col++) {
+            if (hasValue(col, index)) {
+                setValue(loc, col, index);
+            } else {
+                removeValue(loc, col);
+            }
+        }
+        return loc;
+    }
+
+    @Override
+    public Location set(int index, Location loc) {
+        Location prev = get(index);
+        store(index, loc);
+        return prev;
+    }
+
+    @Override
+    public void add(int index, Location loc) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index:" + index + ", size:" + mSize);
+        }
+        ensureCapacity(mSize + 1);
+
+        // move points behind index
+        if (index < mSize) {
+            shift(index, index + 1, mSize - index);
+        }
+        mSize++;
+        modCount++;
+
+        // store point
+        store(index, loc);
+    }
+
+    @Override
+    public Location remove(int index) {
+        Location prev = get(index);
+        if (index < mSize - 1) {
+            shift(index + 1, index, mSize - index - 1);
+        }
+        mSize--;
+        modCount++;
+        mChanges++;
+        mProviders[mSize] = null;
+        return prev;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(mProviders, 0, mSize, null);
+        mSize = 0;
+        mIds = null;
+        mAltitudes = null;
+        Arrays.fill(mValues, null);
+        Arrays.fill(mPresent, null);
+        modCount++;
+        mChanges++;
+    }
+
+    //*************************************************
+    // BULK ACCESS
+    //*************************************************
+
+    public long getId(int index) {
+        return mIds == null ? ID_DEFAULT : mIds[index];
+    }
+
+    public long getTime(int index) {
+        return mTimes[index];
+    }
+
+    public double getLatitude(int index) {
+        return mLats[index];
+    }
+
+    public double getLongitude(int index) {
+        return mLons[index];
+    }
+
+    public boolean hasAltitude(int index) {
+        return hasValue(COL_ALTITUDE, index);
+    }
+
+    public double getAltitude(int index) {
+        return hasAltitude(index) ? mAltitudes[index] : 0.0;
+    }
+
+    /**
+     * Get direct access to array of latitudes. Only first {@link #size()} values are valid.
+     * Array must not be modified and it is valid only until container is modified.
+     *
+     * @return array of latitudes
+     */
+    public double[] getLatitudes() {
+        return mLats;
+    }
+
+    /**
+     * Get direct access to array of longitudes. Only first {@link #size()} values are valid.
+     * Array must not be modified and it is valid only until container is modified.
+     *
+     * @return array of longitudes
+     */
+    public double[] getLongitudes() {
+        return mLons;
+    }
+
+    /**
+     * Get direct access to array of times. Only first {@link #size()} values are valid.
+     * Array must not be modified and it is valid only until container is modified.
+     *
+     * @return array of times
+     */
+    public long[] getTimes() {
+        return mTimes;
+    }
+
+    /**
+     * Get direct access to array of altitudes. Only first {@link #size()} values are valid,
+     * values of points without altitude are '0'. Array must not be modified and it is valid
+     * only until container is modified.
+     *
+     * @return array of altitudes or 'null' if no point has altitude
+     */
+    public double[] getAltitudes() {
+        return mAltitudes;
+    }
+
+    /**
+     * Get counter of changes. Unlike 'modCount', counter is changed also by
+     * {@link #set(int, Location)}.
+     *
+     * @return counter of changes
+     */
+    int getChanges() {
+        return mChanges;
+    }
+
+    //*************************************************
+    // COLUMNS
+    //*************************************************
+
+    /**
+     * Check if point on certain index has value in optional column.
+     */
+    boolean hasValue(int col, int index) {
+        return mPresent[col] != null && mPresent[col][index];
+    }
+
+    /**
+     * Prepare arrays of optional column.
+     */
+    void prepareColumn(int col) {
+        if (mPresent[col] != null) {
+            return;
+        }
+        int capacity = mTimes.length;
+        mPresent[col] = new boolean[capacity];
+        if (col == COL_ALTITUDE) {
+            mAltitudes = new double[capacity];
+        } else {
+            mValues[col] = new int[capacity];
+        }
+    }
+
+    /**
+     * Prepare array of IDs.
+     */
+    void prepareIds() {
+        if (mIds == null) {
+            mIds = new long[mTimes.length];
+            Arrays.fill(mIds, ID_DEFAULT);
+        }
+    }
+
+    /**
+     * Make sure, container is able to hold certain number of points.
+     *
+     * @param capacity required capacity
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity <= mTimes.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mTimes.length + (mTimes.length >> 1));
+        if (mIds != null) {
+            int oldLength = mIds.length;
+            mIds = Arrays.copyOf(mIds, newCapacity);
+            Arrays.fill(mIds, oldLength, newCapacity, ID_DEFAULT);
+        }
+        mProviders = Arrays.copyOf(mProviders, newCapacity);
+        mTimes = Arrays.copyOf(mTimes, newCapacity);
+        mLats = Arrays.copyOf(mLats, newCapacity);
+        mLons = Arrays.copyOf(mLons, newCapacity);
+        if (mAltitudes != null) {
+            mAltitudes = Arrays.copyOf(mAltitudes, newCapacity);
+        }
+        for (int col = 0; col < COLUMNS_COUNT; col++) {
+            if (mPresent[col] != null) {
+                mPresent[col] = Arrays.copyOf(mPresent[col], newCapacity);
+            }
+            if (mValues[col] != null) {
+                mValues[col] = Arrays.copyOf(mValues[col], newCapacity);
+            }
+        }
+    }
+
+    /**
+     * Store values of location on certain index.
+     */
+    private void store(int index, Location loc) {
+        mChanges++;
+        long id = loc.getId();
+        if (id != ID_DEFAULT) {
+            prepareIds();
+        }
+        if (mIds != null) {
+            mIds[index] = id;
+        }
+        mProviders[index] = loc.getProvider();
+        mTimes[index] = loc.getTime();
+        mLats[index] = loc.latitude;
+        mLons[index] = loc.longitude;
+        for (int col = 0; col < COLUMNS_COUNT; col++) {
+            boolean has = hasValue(loc, col);
+            if (has) {
+                prepareColumn(col);
+            } else if (mPresent[col] == null) {
+                continue;
+            }
+            mPresent[col][index] = has;
+            if (col == COL_ALTITUDE) {
+                mAltitudes[index] = loc.getAltitude();
+            } else {
+                mValues[col][index] = getValue(loc, col);
+            }
+        }
+    }
+
+    /**
+     * Move values of points inside arrays.
+     */
+    private void shift(int from, int to, int count) {
+        if (mIds != null) {
+            System.arraycopy(mIds, from, mIds, to, count);
+        }
+        System.arraycopy(mProviders, from, mProviders, to, count);
+        System.arraycopy(mTimes, from, mTimes, to, count);
+        System.arraycopy(mLats, from, mLats, to, count);
+        System.arraycopy(mLons, from, mLons, to, count);
+        if (mAltitudes != null) {
+            System.arraycopy(mAltitudes, from, mAltitudes, to, count);
+        }
+        for (int col = 0; col < COLUMNS_COUNT; col++) {
+            if (mPresent[col] != null) {
+                System.arraycopy(mPresent[col], from, mPresent[col], to, count);
+            }
+            if (mValues[col] != null) {
+                System.arraycopy(mValues[col], from, mValues[col], to, count);
+            }
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index:" + index + ", size:" + mSize);
+        }
+    }
+
+    //*************************************************
+    // LOCATION ACCESS
+    //*************************************************
+
+    /**
+     * Check if column of location has defined value.
+     */
+    static boolean hasValue(Location loc, int col) {
+        switch (col) {
+            case COL_ALTITUDE:
+                return loc.hasAltitude();
+            case COL_SPEED:
+                return loc.hasSpeed();
+            case COL_BEARING:
+                return loc.hasBearing();
+            case COL_ACCURACY:
+                return loc.hasAccuracy();
+            case COL_HR:
+                return loc.hasSensorHeartRate();
+            case COL_CADENCE:
+                return loc.hasSensorCadence();
+            case COL_SENSOR_SPEED:
+                return loc.hasSensorSpeed();
+            case COL_POWER:
+                return loc.hasSensorPower();
+            case COL_STRIDES:
+                return loc.hasSensorStrides();
+            case COL_TEMPERATURE:
+                return loc.hasSensorTemperature();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check if values of optional column are integers (otherwise they are floats).
+     */
+    static boolean isIntColumn(int col) {
+        return col == COL_HR || col == COL_CADENCE || col == COL_STRIDES;
+    }
+
+    /**
+     * Get value of optional column (except altitude). Floats are returned as their bits.
+     */
+    private static int getValue(Location loc, int col) {
+        switch (col) {
+            case COL_SPEED:
+                return Float.floatToIntBits(loc.getSpeed());
+            case COL_BEARING:
+                return Float.floatToIntBits(loc.getBearing());
+            case COL_ACCURACY:
+                return Float.floatToIntBits(loc.getAccuracy());
+            case COL_HR:
+                return loc.getSensorHeartRate();
+            case COL_CADENCE:
+                return loc.getSensorCadence();
+            case COL_SENSOR_SPEED:
+                return Float.floatToIntBits(loc.getSensorSpeed());
+            case COL_POWER:
+                return Float.floatToIntBits(loc.getSensorPower());
+            case COL_STRIDES:
+                return loc.getSensorStrides();
+            case COL_TEMPERATURE:
+                return Float.floatToIntBits(loc.getSensorTemperature());
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Set value of optional column stored on certain index into location.
+     */
+    private void setValue(Location loc, int col, int index) {
+        int value = col == COL_ALTITUDE ? 0 : mValues[col][index];
+        switch (col) {
+            case COL_ALTITUDE:
+                loc.setAltitude(mAltitudes[index]);
+                break;
+            case COL_SPEED:
+                loc.setSpeed(Float.intBitsToFloat(value));
+                break;
+            case COL_BEARING:
+                loc.setBearing(Float.intBitsToFloat(value));
+                break;
+            case COL_ACCURACY:
+                loc.setAccuracy(Float.intBitsToFloat(value));
+                break;
+            case COL_HR:
+                loc.setSensorHeartRate(value);
+                break;
+            case COL_CADENCE:
+                loc.setSensorCadence(value);
+                break;
+            case COL_SENSOR_SPEED:
+                loc.setSensorSpeed(Float.intBitsToFloat(value));
+                break;
+            case COL_POWER:
+                loc.setSensorPower(Float.intBitsToFloat(value));
+                break;
+            case COL_STRIDES:
+                loc.setSensorStrides(value);
+                break;
+            case COL_TEMPERATURE:
+                loc.setSensorTemperature(Float.intBitsToFloat(value));
+                break;
+        }
+    }
+
+    /**
+     * Remove value of optional column from location.
+     */
+    private static void removeValue(Location loc, int col) {
+        if (!hasValue(loc, col)) {
+            return;
+        }
+        switch (col) {
+            case COL_ALTITUDE:
+                loc.removeAltitude();
+                break;
+            case COL_SPEED:
+                loc.removeSpeed();
+                break;
+            case COL_BEARING:
+                loc.removeBearing();
+                break;
+            case COL_ACCURACY:
+                loc.removeAccuracy();
+                break;
+            case COL_HR:
+                loc.removeSensorHeartRate();
+                break;
+            case COL_CADENCE:
+                loc.removeSensorCadence();
+                break;
+            case COL_SENSOR_SPEED:
+                loc.removeSensorSpeed();
+                break;
+            case COL_POWER:
+                loc.removeSensorPower();
+                break;
+            case COL_STRIDES:
+                loc.removeSensorStrides();
+                break;
+            case COL_TEMPERATURE:
+                loc.removeSensorTemperature();
+                break;
+        }
+    }
+
+    /**
+     * Convert list of points into compact container. Nothing is converted if list is already
+     * a compact container.
+     *
+     * @param points list of points
+     * @return compact container
+     */
+    static TrackPoints from(List<Location> points) {
+        if (points instanceof TrackPoints) {
+            return (TrackPoints) points;
+        }
+        return new TrackPoints(points);
+    }
+}
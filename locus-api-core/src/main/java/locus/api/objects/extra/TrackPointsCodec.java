@@ -0,0 +1,414 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.objects.extra;
+
+import locus.api.utils.DataReaderBigEndian;
+import locus.api.utils.DataWriterBigEndian;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packed (column-wise) encoding of track points.
+ * <br><br>
+ * Instead of storing every point as a separate {@link Location} object, values of all points
+ * are stored column by column. Times and coordinates are stored as differences against
+ * previous point, optional values only for points, that really contain them.
+ * Encoding is lossless for all values accessible over {@link Location} API, coordinates are
+ * stored as fixed-point values only if all of them may be restored without any change.
+ * Deprecated battery value of sensors, that has no accessor and is dropped by
+ * {@link Location} itself once no other sensor value exists, is not stored.
+ */
+final class TrackPointsCodec {
+
+    // no point has value in column
+    private static final byte COLUMN_NONE = 0;
+    // all points have value in column
+    private static final byte COLUMN_ALL = 1;
+    // only some points have value in column, bitmap follows
+    private static final byte COLUMN_PARTIAL = 2;
+
+    // values are stored as differences of fixed-point numbers
+    private static final byte VALUES_FIXED = 0;
+    // values are stored as raw doubles
+    private static final byte VALUES_RAW = 1;
+
+    // all values in column are same
+    private static final byte IDS_SAME = 0;
+    // values are stored as differences
+    private static final byte IDS_DIFF = 1;
+
+    // scale of fixed-point coordinates (1e-7 degree ~ 1 cm)
+    private static final double SCALE_COORDINATE = 1.0e7;
+    // scale of fixed-point altitude (1 mm)
+    private static final double SCALE_ALTITUDE = 1.0e3;
+
+    private TrackPointsCodec() {
+    }
+
+    //*************************************************
+    // WRITE
+    //*************************************************
+
+    /**
+     * Write points into writer.
+     *
+     * @param dw     data writer
+     * @param points points to write
+     * @throws IOException thrown in case of invalid data format
+     */
+    static void write(DataWriterBigEndian dw, List<Location> points) throws IOException {
+        TrackPoints tp = TrackPoints.from(points);
+        int count = tp.size();
+        dw.writeVarInt(count);
+        if (count == 0) {
+            return;
+        }
+
+        // IDs
+        long[] longs = new long[count];
+        for (int i = 0; i < count; i++) {
+            longs[i] = tp.getId(i);
+        }
+        writeIds(dw, longs, count);
+
+        // providers
+        writeProviders(dw, tp);
+
+        // times and coordinates
+        writeLongDiffs(dw, tp.mTimes, count);
+        writeDoubles(dw, tp.mLats, count, SCALE_COORDINATE);
+        writeDoubles(dw, tp.mLons, count, SCALE_COORDINATE);
+
+        // optional columns
+        boolean[] has = new boolean[count];
+        double[] doubles = new double[count];
+        int[] ints = new int[count];
+        for (int col = 0; col < TrackPoints.COLUMNS_COUNT; col++) {
+            // collect values
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                has[i] = tp.hasValue(col, i);
+                if (!has[i]) {
+                    continue;
+                }
+                if (col == TrackPoints.COL_ALTITUDE) {
+                    doubles[size] = tp.mAltitudes[i];
+                } else {
+                    ints[size] = tp.mValues[col][i];
+                }
+                size++;
+            }
+
+            // write values
+            writePresence(dw, has, count, size);
+            if (size == 0) {
+                continue;
+            }
+            if (col == TrackPoints.COL_ALTITUDE) {
+                writeDoubles(dw, doubles, size, SCALE_ALTITUDE);
+            } else if (TrackPoints.isIntColumn(col)) {
+                writeIntDiffs(dw, ints, size);
+            } else {
+                for (int i = 0; i < size; i++) {
+                    dw.writeInt(ints[i]);
+                }
+            }
+        }
+    }
+
+    private static void writeIds(DataWriterBigEndian dw, long[] values, int count) {
+        boolean same = true;
+        for (int i = 1; i < count; i++) {
+            if (values[i] != values[0]) {
+                same = false;
+                break;
+            }
+        }
+        if (same) {
+            dw.writeByte(IDS_SAME);
+            dw.writeVarLongSigned(values[0]);
+        } else {
+            dw.writeByte(IDS_DIFF);
+            writeLongDiffs(dw, values, count);
+        }
+    }
+
+    private static void writeProviders(DataWriterBigEndian dw, TrackPoints points)
+            throws IOException {
+        // prepare dictionary
+        List<String> providers = new ArrayList<>();
+        int[] indexes = new int[points.size()];
+        for (int i = 0, m = points.size(); i < m; i++) {
+            String provider = points.mProviders[i];
+            int index = providers.indexOf(provider);
+            if (index < 0) {
+                index = providers.size();
+                providers.add(provider);
+            }
+            indexes[i] = index;
+        }
+
+        // write dictionary and indexes
+        dw.writeVarInt(providers.size());
+        for (int i = 0, m = providers.size(); i < m; i++) {
+            dw.writeString(providers.get(i));
+        }
+        if (providers.size() > 1) {
+            for (int index : indexes) {
+                dw.writeVarInt(index);
+            }
+        }
+    }
+
+    private static void writeLongDiffs(DataWriterBigEndian dw, long[] values, int count) {
+        long last = 0L;
+        for (int i = 0; i < count; i++) {
+            dw.writeVarLongSigned(values[i] - last);
+            last = values[i];
+        }
+    }
+
+    private static void writeIntDiffs(DataWriterBigEndian dw, int[] values, int count) {
+        int last = 0;
+        for (int i = 0; i < count; i++) {
+            dw.writeVarIntSigned(values[i] - last);
+            last = values[i];
+        }
+    }
+
+    private static void writeDoubles(DataWriterBigEndian dw, double[] values, int count,
+            double scale) {
+        // check if fixed-point values may be used without loss of precision
+        boolean fixed = true;
+        for (int i = 0; i < count; i++) {
+            double scaled = values[i] * scale;
+            if (Math.abs(scaled) >= Long.MAX_VALUE / 2
+                    || Math.round(scaled) / scale != values[i]
+                    || Double.doubleToRawLongBits(values[i]) == Double.doubleToRawLongBits(-0.0)) {
+                fixed = false;
+                break;
+            }
+        }
+
+        // write values
+        if (fixed) {
+            dw.writeByte(VALUES_FIXED);
+            long last = 0L;
+            for (int i = 0; i < count; i++) {
+                long value = Math.round(values[i] * scale);
+                dw.writeVarLongSigned(value - last);
+                last = value;
+            }
+        } else {
+            dw.writeByte(VALUES_RAW);
+            for (int i = 0; i < count; i++) {
+                dw.writeDouble(values[i]);
+            }
+        }
+    }
+
+    private static void writePresence(DataWriterBigEndian dw, boolean[] has,
+            int count, int size) {
+        if (size == 0) {
+            dw.writeByte(COLUMN_NONE);
+        } else if (size == count) {
+            dw.writeByte(COLUMN_ALL);
+        } else {
+            dw.writeByte(COLUMN_PARTIAL);
+            for (int i = 0; i < count; i += 8) {
+                int b = 0;
+                for (int j = 0; j < 8 && i + j < count; j++) {
+                    if (has[i + j]) {
+                        b |= 1 << j;
+                    }
+                }
+                dw.write(b);
+            }
+        }
+    }
+
+    //*************************************************
+    // READ
+    //*************************************************
+
+    /**
+     * Read points from reader.
+     *
+     * @param dr data reader
+     * @return read points
+     * @throws IOException thrown in case of invalid data format
+     */
+    static TrackPoints read(DataReaderBigEndian dr) throws IOException {
+        // every point takes at least one byte (time), so check count against available
+        // data before any allocation
+        int count = dr.readVarInt();
+        if (count < 0 || count > dr.available()) {
+            throw new IOException("Invalid number of points:" + count + ", " +
+                    "available:" + dr.available());
+        }
+        TrackPoints tp = new TrackPoints(count);
+        if (count == 0) {
+            return tp;
+        }
+        tp.mSize = count;
+
+        // IDs
+        byte idsMode = dr.readByte();
+        if (idsMode == IDS_SAME) {
+            long id = dr.readVarLongSigned();
+            if (id != tp.getId(0)) {
+                tp.prepareIds();
+                Arrays.fill(tp.mIds, 0, count, id);
+            }
+        } else {
+            tp.prepareIds();
+            readLongDiffs(dr, tp.mIds, count);
+        }
+
+        // providers
+        readProviders(dr, tp);
+
+        // times and coordinates
+        readLongDiffs(dr, tp.mTimes, count);
+        readDoubles(dr, tp.mLats, count, SCALE_COORDINATE);
+        readDoubles(dr, tp.mLons, count, SCALE_COORDINATE);
+
+        // optional columns
+        boolean[] has = new boolean[count];
+        double[] doubles = new double[count];
+        int[] ints = new int[count];
+        for (int col = 0; col < TrackPoints.COLUMNS_COUNT; col++) {
+            int size = readPresence(dr, has, count);
+            if (size == 0) {
+                continue;
+            }
+
+            // read values
+            if (col == TrackPoints.COL_ALTITUDE) {
+                readDoubles(dr, doubles, size, SCALE_ALTITUDE);
+            } else if (TrackPoints.isIntColumn(col)) {
+                readIntDiffs(dr, ints, size);
+            } else {
+                for (int i = 0; i < size; i++) {
+                    ints[i] = dr.readInt();
+                }
+            }
+
+            // set values to points
+            tp.prepareColumn(col);
+            System.arraycopy(has, 0, tp.mPresent[col], 0, count);
+            for (int i = 0, index = 0; i < count; i++) {
+                if (!has[i]) {
+                    continue;
+                }
+                if (col == TrackPoints.COL_ALTITUDE) {
+                    tp.mAltitudes[i] = doubles[index];
+                } else {
+                    tp.mValues[col][i] = ints[index];
+                }
+                index++;
+            }
+        }
+        return tp;
+    }
+
+    private static void readProviders(DataReaderBigEndian dr, TrackPoints points)
+            throws IOException {
+        int size = dr.readVarInt();
+        String[] providers = new String[size];
+        for (int i = 0; i < size; i++) {
+            providers[i] = dr.readString();
+        }
+        for (int i = 0, m = points.size(); i < m; i++) {
+            int index = size > 1 ? dr.readVarInt() : 0;
+            if (index < 0 || index >= size) {
+                throw new IOException("Invalid provider index:" + index);
+            }
+            points.mProviders[i] = providers[index];
+        }
+    }
+
+    private static void readLongDiffs(DataReaderBigEndian dr, long[] values, int count)
+            throws IOException {
+        long last = 0L;
+        for (int i = 0; i < count; i++) {
+            last += dr.readVarLongSigned();
+            values[i] = last;
+        }
+    }
+
+    private static void readIntDiffs(DataReaderBigEndian dr, int[] values, int count)
+            throws IOException {
+        int last = 0;
+        for (int i = 0; i < count; i++) {
+            last += dr.readVarIntSigned();
+            values[i] = last;
+        }
+    }
+
+    private static void readDoubles(DataReaderBigEndian dr, double[] values, int count,
+            double scale) throws IOException {
+        byte mode = dr.readByte();
+        if (mode == VALUES_FIXED) {
+            long last = 0L;
+            for (int i = 0; i < count; i++) {
+                last += dr.readVarLongSigned();
+                values[i] = last / scale;
+            }
+        } else if (mode == VALUES_RAW) {
+            for (int i = 0; i < count; i++) {
+                values[i] = dr.readDouble();
+            }
+        } else {
+            throw new IOException("Invalid values mode:" + mode);
+        }
+    }
+
+    private static int readPresence(DataReaderBigEndian dr, boolean[] has, int count)
+            throws IOException {
+        byte mode = dr.readByte();
+        if (mode == COLUMN_NONE) {
+            return 0;
+        } else if (mode == COLUMN_ALL) {
+            for (int i = 0; i < count; i++) {
+                has[i] = true;
+            }
+            return count;
+        } else if (mode == COLUMN_PARTIAL) {
+            int size = 0;
+            for (int i = 0; i < count; i += 8) {
+                int b = dr.readByte();
+                for (int j = 0; j < 8 && i + j < count; j++) {
+                    has[i + j] = ((b >> j) & 1) == 1;
+                    if (has[i + j]) {
+                        size++;
+                    }
+                }
+            }
+            return size;
+        } else {
+            throw new IOException("Invalid column mode:" + mode);
+        }
+    }
+}
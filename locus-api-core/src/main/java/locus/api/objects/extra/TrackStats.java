@@ -74,6 +74,15 @@ public class TrackStats extends Storable {
     // number of steps
     private int mNumOfStrides;
 
+    static {
+        registerFactory(TrackStats.class, new Factory<TrackStats>() {
+            @Override
+            public TrackStats create() {
+                return new TrackStats();
+            }
+        });
+    }
+
     /**
      * Default empty constructor.
      */
@@ -594,7 +603,12 @@ public class TrackStats extends Storable {
      */
     public void appendStatistics(TrackStats stats) {
         this.mNumOfPoints += stats.mNumOfPoints;
-        this.mStartTime = Math.min(mStartTime, stats.mStartTime);
+        // start time '-1' means not defined time
+        if (mStartTime < 0L) {
+            this.mStartTime = stats.mStartTime;
+        } else if (stats.mStartTime >= 0L) {
+            this.mStartTime = Math.min(mStartTime, stats.mStartTime);
+        }
         this.mStopTime = Math.max(mStopTime, stats.mStopTime);
         this.mTotalLength += stats.mTotalLength;
         this.mTotalLengthMove += stats.mTotalLengthMove;
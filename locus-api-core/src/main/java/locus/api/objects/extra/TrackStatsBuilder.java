@@ -0,0 +1,502 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.objects.extra;
+
+import locus.api.objects.utils.LocationCompute;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Incremental computation of track statistics.
+ * <br><br>
+ * Points are added one by one in order of track, every point is processed in constant time.
+ * Result of computation is {@link TrackStats} object, results of more builders (for example
+ * for more parts of track) may be merged by {@link TrackStats#appendStatistics(TrackStats)}.
+ * <br><br>
+ * Elevation gain and loss is counted with hysteresis, so small noise in altitude values does
+ * not increase total climbs. Segment of track is counted as a movement if its speed is
+ * above {@link #getMinSpeedMove()}.
+ * <br><br>
+ * Builder is not thread-safe. For parallel computation of very long tracks, use
+ * {@link #computeParallel(Track, ForkJoinPool)}.
+ */
+public class TrackStatsBuilder {
+
+    // minimal number of points computed in one parallel task
+    private static final int PARALLEL_CHUNK_SIZE = 16384;
+
+    // default minimal speed, that is considered as a movement (in m/s)
+    public static final float DEFAULT_MIN_SPEED_MOVE = 0.5f;
+    // default minimal change of altitude, that is counted into climbs (in metres)
+    public static final float DEFAULT_ELEVATION_HYSTERESIS = 5.0f;
+    // default maximal grade of neutral part of track (in %)
+    public static final float DEFAULT_NEUTRAL_GRADE = 2.0f;
+
+    // minimal speed of movement
+    private float mMinSpeedMove;
+    // hysteresis of elevation
+    private float mEleHysteresis;
+    // maximal neutral grade
+    private float mNeutralGrade;
+
+    // computed statistics
+    private final TrackStats mStats;
+
+    // flag if next point starts new segment
+    private boolean mNewSegment;
+    // flag if any point was already added
+    private boolean mHasLast;
+    // values of last added point
+    private double mLastLat;
+    private double mLastLon;
+    private long mLastTime;
+    private int mLastHr;
+    private int mLastCadence;
+
+    // flag if reference altitude is defined
+    private boolean mHasEleRef;
+    // reference altitude, from which is measured change of altitude
+    private double mEleRef;
+    // last known altitude
+    private double mEleLast;
+    // distance from point with reference altitude
+    private double mEleDistance;
+
+    /**
+     * Create new builder with default parameters.
+     */
+    public TrackStatsBuilder() {
+        mMinSpeedMove = DEFAULT_MIN_SPEED_MOVE;
+        mEleHysteresis = DEFAULT_ELEVATION_HYSTERESIS;
+        mNeutralGrade = DEFAULT_NEUTRAL_GRADE;
+        mStats = new TrackStats();
+        reset();
+    }
+
+    //*************************************************
+    // PARAMETERS
+    //*************************************************
+
+    public float getMinSpeedMove() {
+        return mMinSpeedMove;
+    }
+
+    /**
+     * Set minimal speed of segment, that is counted as a movement.
+     *
+     * @param minSpeedMove speed in m/s
+     * @return this builder
+     */
+    public TrackStatsBuilder setMinSpeedMove(float minSpeedMove) {
+        this.mMinSpeedMove = minSpeedMove;
+        return this;
+    }
+
+    public float getElevationHysteresis() {
+        return mEleHysteresis;
+    }
+
+    /**
+     * Set minimal change of altitude, that is counted into elevation gain or loss.
+     *
+     * @param hysteresis change of altitude in metres
+     * @return this builder
+     */
+    public TrackStatsBuilder setElevationHysteresis(float hysteresis) {
+        this.mEleHysteresis = hysteresis;
+        return this;
+    }
+
+    public float getNeutralGrade() {
+        return mNeutralGrade;
+    }
+
+    /**
+     * Set maximal grade of part of track, that is still considered as a neutral.
+     *
+     * @param neutralGrade grade in %
+     * @return this builder
+     */
+    public TrackStatsBuilder setNeutralGrade(float neutralGrade) {
+        this.mNeutralGrade = neutralGrade;
+        return this;
+    }
+
+    //*************************************************
+    // COMPUTE
+    //*************************************************
+
+    /**
+     * Reset builder to initial state.
+     */
+    public void reset() {
+        mStats.setNumOfPoints(0);
+        mStats.setStartTime(-1L);
+        mStats.setStopTime(-1L);
+        mStats.resetStatistics();
+        mNewSegment = true;
+        mHasLast = false;
+        mHasEleRef = false;
+        mEleDistance = 0.0;
+    }
+
+    /**
+     * Mark, that next added point starts new segment of track. Distance and time between
+     * last point and next point are not counted.
+     */
+    public void addBreak() {
+        mNewSegment = true;
+        flushElevation(mStats);
+        mHasEleRef = false;
+    }
+
+    /**
+     * Add next point of track.
+     *
+     * @param loc location to add
+     */
+    public void addPoint(Location loc) {
+        addPoint(loc.latitude, loc.longitude, loc.getTime(),
+                loc.hasAltitude(), loc.getAltitude(),
+                loc.hasSpeed() ? loc.getSpeed() : -1.0f,
+                loc.hasSensorHeartRate() ? loc.getSensorHeartRate() : 0,
+                loc.hasSensorCadence() ? loc.getSensorCadence() : 0);
+    }
+
+    /**
+     * Add next point of track.
+     *
+     * @param lat         latitude of point
+     * @param lon         longitude of point
+     * @param time        time of point
+     * @param hasAltitude {@code true} if point has altitude
+     * @param altitude    altitude of point
+     * @param speed       measured speed of point or negative value if not known
+     * @param hr          heart rate of point or '0' if not known
+     * @param cadence     cadence of point or '0' if not known
+     */
+    public void addPoint(double lat, double lon, long time,
+            boolean hasAltitude, double altitude, float speed, int hr, int cadence) {
+        // basic values
+        mStats.setNumOfPoints(mStats.getNumOfPoints() + 1);
+        if (time > 0L) {
+            if (mStats.getStartTime() < 0L || time < mStats.getStartTime()) {
+                mStats.setStartTime(time);
+            }
+            mStats.setStopTime(Math.max(mStats.getStopTime(), time));
+        }
+        if (speed > mStats.getSpeedMax()) {
+            mStats.setSpeedMax(speed);
+        }
+
+        // values related to previous point
+        double dist = 0.0;
+        if (mHasLast && !mNewSegment) {
+            dist = LocationCompute.computeDistanceFast(mLastLat, mLastLon, lat, lon);
+            long dt = time - mLastTime;
+            mStats.addTotalLength((float) dist);
+            if (dt > 0L) {
+                mStats.addTotalTime(dt);
+
+                // movement
+                double segmentSpeed = dist / (dt / 1000.0);
+                if (segmentSpeed >= mMinSpeedMove) {
+                    mStats.addTotalLengthMove((float) dist);
+                    mStats.addTotalTimeMove(dt);
+                    if (speed < 0.0f && segmentSpeed > mStats.getSpeedMax()) {
+                        mStats.setSpeedMax((float) segmentSpeed);
+                    }
+                }
+
+                // sensors
+                if (hr > 0 && mLastHr > 0) {
+                    mStats.addHeartRateMeasure(hr, (hr + mLastHr) / 2, dt);
+                }
+                if (cadence > 0 && mLastCadence > 0) {
+                    mStats.addCadenceMeasure(cadence, (cadence + mLastCadence) / 2, dt);
+                }
+            }
+        }
+
+        // elevation
+        if (hasAltitude) {
+            addAltitude(altitude, dist);
+        } else if (mHasEleRef) {
+            mEleDistance += dist;
+        }
+
+        // store values of point
+        mHasLast = true;
+        mNewSegment = false;
+        mLastLat = lat;
+        mLastLon = lon;
+        mLastTime = time;
+        mLastHr = hr;
+        mLastCadence = cadence;
+    }
+
+    /**
+     * Add all points of track, including breaks. Points are not allocated in case of
+     * compact storage of points.
+     *
+     * @param track track to add
+     */
+    public void addTrack(Track track) {
+        addPoints(track, 0, track.getPointsCount());
+    }
+
+    /**
+     * Add range of points of track, including breaks inside of range. If no point was added
+     * into builder yet, segment between previous point and first point of range is counted
+     * as well, so results of consecutive ranges may be merged into statistics of whole track.
+     *
+     * @param track track to add
+     * @param from  index of first point (inclusive)
+     * @param to    index of last point (exclusive)
+     */
+    public void addPoints(Track track, int from, int to) {
+        Location loc = new Location();
+        int breakIndex = track.getBreaksCount() == 0 ? -1 : 0;
+        if (from > 0 && !mHasLast && !hasBreakAfter(track, from - 1)) {
+            // continue from previous point, but count only values related to added points
+            setLastPoint(track.getPoint(from - 1, loc));
+        }
+        for (int i = from; i < to; i++) {
+            track.getPoint(i, loc);
+            addPoint(loc);
+
+            // check break after point
+            while (breakIndex >= 0 && breakIndex < track.getBreaksCount()
+                    && track.getBreak(breakIndex) < i) {
+                breakIndex++;
+            }
+            if (breakIndex >= 0 && breakIndex < track.getBreaksCount()
+                    && track.getBreak(breakIndex) == i) {
+                addBreak();
+            }
+        }
+    }
+
+    /**
+     * Check if track has break after point on certain index.
+     */
+    private static boolean hasBreakAfter(Track track, int index) {
+        int segment = track.getSegmentOfPoint(index);
+        return segment < track.getBreaksCount() && track.getBreak(segment) == index;
+    }
+
+    /**
+     * Set point, that precede next added point. Point itself is not counted into statistics,
+     * but segment between this and next point is.
+     *
+     * @param loc previous point
+     */
+    private void setLastPoint(Location loc) {
+        mHasLast = true;
+        mNewSegment = false;
+        mLastLat = loc.latitude;
+        mLastLon = loc.longitude;
+        mLastTime = loc.getTime();
+        mLastHr = loc.hasSensorHeartRate() ? loc.getSensorHeartRate() : 0;
+        mLastCadence = loc.hasSensorCadence() ? loc.getSensorCadence() : 0;
+        if (loc.hasAltitude()) {
+            mHasEleRef = true;
+            mEleRef = loc.getAltitude();
+            mEleLast = mEleRef;
+            mEleDistance = 0.0;
+        }
+    }
+
+    /**
+     * Get computed statistics. Builder may be used for further points after this call.
+     *
+     * @return new object with statistics
+     */
+    public TrackStats build() {
+        TrackStats stats = new TrackStats();
+        stats.appendStatistics(mStats);
+        flushElevation(stats);
+        return stats;
+    }
+
+    /**
+     * Compute statistics of whole track.
+     *
+     * @param track track to compute
+     * @return computed statistics
+     */
+    public static TrackStats compute(Track track) {
+        TrackStatsBuilder builder = new TrackStatsBuilder();
+        builder.addTrack(track);
+        return builder.build();
+    }
+
+    /**
+     * Compute statistics of track in parallel. Points of track are split into chunks,
+     * computed concurrently and merged. Segments between chunks are counted exactly as in
+     * sequential computation, only elevation gain and loss may differ slightly (at most by
+     * value of hysteresis on every chunk boundary), because hysteresis restarts on boundary.
+     * <br><br>
+     * Track must not be modified during computation.
+     *
+     * @param track track to compute
+     * @param pool  pool used for computation
+     * @return computed statistics
+     */
+    public TrackStats computeParallel(Track track, ForkJoinPool pool) {
+        int count = track.getPointsCount();
+        if (count <= PARALLEL_CHUNK_SIZE) {
+            TrackStatsBuilder builder = copyParameters();
+            builder.addTrack(track);
+            return builder.build();
+        }
+        return pool.invoke(new ComputeTask(this, track, 0, count));
+    }
+
+    /**
+     * Create new empty builder with same parameters as this builder.
+     *
+     * @return new builder
+     */
+    private TrackStatsBuilder copyParameters() {
+        return new TrackStatsBuilder()
+                .setMinSpeedMove(mMinSpeedMove)
+                .setElevationHysteresis(mEleHysteresis)
+                .setNeutralGrade(mNeutralGrade);
+    }
+
+    /**
+     * Task that computes statistics for range of points.
+     */
+    private static class ComputeTask extends RecursiveTask<TrackStats> {
+
+        private static final long serialVersionUID = 1L;
+
+        // builder with parameters
+        private final TrackStatsBuilder mParams;
+        // track to compute
+        private final Track mTrack;
+        // index of first point (inclusive)
+        private final int mFrom;
+        // index of last point (exclusive)
+        private final int mTo;
+
+        ComputeTask(TrackStatsBuilder params, Track track, int from, int to) {
+            this.mParams = params;
+            this.mTrack = track;
+            this.mFrom = from;
+            this.mTo = to;
+        }
+
+        @Override
+        protected TrackStats compute() {
+            // compute directly
+            if (mTo - mFrom <= PARALLEL_CHUNK_SIZE) {
+                TrackStatsBuilder builder = mParams.copyParameters();
+                builder.addPoints(mTrack, mFrom, mTo);
+                return builder.build();
+            }
+
+            // split into two tasks
+            int middle = (mFrom + mTo) >>> 1;
+            ComputeTask left = new ComputeTask(mParams, mTrack, mFrom, middle);
+            ComputeTask right = new ComputeTask(mParams, mTrack, middle, mTo);
+            right.fork();
+            TrackStats stats = left.compute();
+            stats.appendStatistics(right.join());
+            return stats;
+        }
+    }
+
+    //*************************************************
+    // ELEVATION
+    //*************************************************
+
+    /**
+     * Handle altitude of new point.
+     *
+     * @param altitude altitude of point
+     * @param dist     distance from previous point
+     */
+    private void addAltitude(double altitude, double dist) {
+        // min and max values
+        float alt = (float) altitude;
+        if (alt > mStats.getAltitudeMax()) {
+            mStats.setAltitudeMax(alt);
+        }
+        if (alt < mStats.getAltitudeMin()) {
+            mStats.setAltitudeMin(alt);
+        }
+
+        // first altitude in segment
+        mEleLast = altitude;
+        if (!mHasEleRef) {
+            mHasEleRef = true;
+            mEleRef = altitude;
+            mEleDistance = 0.0;
+            return;
+        }
+
+        // check change of altitude
+        mEleDistance += dist;
+        double diff = altitude - mEleRef;
+        if (Math.abs(diff) < mEleHysteresis) {
+            return;
+        }
+        addElevation(mStats, diff, mEleDistance);
+        mEleRef = altitude;
+        mEleDistance = 0.0;
+    }
+
+    /**
+     * Add not yet counted part of elevation into statistics.
+     *
+     * @param stats statistics to update
+     */
+    private void flushElevation(TrackStats stats) {
+        if (mHasEleRef && mEleDistance > 0.0) {
+            addElevation(stats, mEleLast - mEleRef, mEleDistance);
+        }
+    }
+
+    /**
+     * Add part of track with certain change of altitude.
+     *
+     * @param stats statistics to update
+     * @param diff  change of altitude
+     * @param dist  distance of part of track
+     */
+    private void addElevation(TrackStats stats, double diff, double dist) {
+        boolean neutral = Math.abs(diff) < mEleHysteresis
+                || (dist > 0.0 && Math.abs(diff) / dist * 100.0 <= mNeutralGrade);
+        if (neutral) {
+            stats.addEleNeutralDistance((float) dist);
+            stats.addEleNeutralHeight((float) Math.abs(diff));
+        } else if (diff > 0.0) {
+            stats.addElePositiveDistance((float) dist);
+            stats.addElePositiveHeight((float) diff);
+        } else {
+            stats.addEleNegativeDistance((float) dist);
+            stats.addEleNegativeHeight((float) -diff);
+        }
+    }
+}
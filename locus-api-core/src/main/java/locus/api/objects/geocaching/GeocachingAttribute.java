@@ -41,6 +41,15 @@ public class GeocachingAttribute extends Storable {
     // unique ID for attribute
     private int mId;
 
+    static {
+        registerFactory(GeocachingAttribute.class, new Factory<GeocachingAttribute>() {
+            @Override
+            public GeocachingAttribute create() {
+                return new GeocachingAttribute();
+            }
+        });
+    }
+
     /**
      * Basic constructor.
      */
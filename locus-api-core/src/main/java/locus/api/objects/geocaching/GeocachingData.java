@@ -196,6 +196,15 @@ public class GeocachingData extends Storable {
     // source of cache
     private int mSource;
 
+    static {
+        registerFactory(GeocachingData.class, new Factory<GeocachingData>() {
+            @Override
+            public GeocachingData create() {
+                return new GeocachingData();
+            }
+        });
+    }
+
     /**
      * Main empty constructor
      */
@@ -24,6 +24,15 @@ public class GeocachingImage extends Storable {
     // (mobile) image, then to full version
     private String mUrl;
 
+    static {
+        registerFactory(GeocachingImage.class, new Factory<GeocachingImage>() {
+            @Override
+            public GeocachingImage create() {
+                return new GeocachingImage();
+            }
+        });
+    }
+
     public GeocachingImage() {
         mName = "";
         mDescription = "";
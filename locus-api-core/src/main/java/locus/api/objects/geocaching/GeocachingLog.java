@@ -44,6 +44,9 @@ public class GeocachingLog extends Storable {
     // tag for logger
     private static final String TAG = "GeocachingLog";
 
+    // version of compact layout of log, see VERSION_FLAG_COMPACT
+    private static final int VERSION_COMPACT = 0;
+
     // LOG TYPES
 
     public static final int CACHE_LOG_TYPE_UNKNOWN = -1;
@@ -94,6 +97,15 @@ public class GeocachingLog extends Storable {
     // latitude defined by user.
     private double mCooLat;
 
+    static {
+        registerFactory(GeocachingLog.class, new Factory<GeocachingLog>() {
+            @Override
+            public GeocachingLog create() {
+                return new GeocachingLog();
+            }
+        });
+    }
+
     /**
      * Basic empty constructor
      */
@@ -333,10 +345,39 @@ public class GeocachingLog extends Storable {
         return 2;
     }
 
+    @Override
+    protected int getVersion(DataWriterBigEndian dw) {
+        return dw.isCompactEncoding() ? VERSION_FLAG_COMPACT | VERSION_COMPACT : getVersion();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     protected void readObject(int version, DataReaderBigEndian dr)
             throws IOException {
+        // compact encoding, V0
+        if ((version & VERSION_FLAG_COMPACT) != 0) {
+            mId = dr.readVarLongSigned();
+            mType = dr.readVarIntSigned();
+            mDate = dr.readVarLongSigned();
+            mFinder = dr.readStringVar();
+            mFindersId = dr.readVarLongSigned();
+            mFindersFound = dr.readVarIntSigned();
+            mLogText = dr.readStringVar();
+            int images = dr.readVarInt();
+            if (images < 0) {
+                throw new IOException("Invalid number of images:" + images);
+            }
+            mImages = new ArrayList<>(Math.max(0, Math.min(images, dr.available())));
+            for (int i = 0; i < images; i++) {
+                GeocachingImage image = new GeocachingImage();
+                image.read(dr);
+                mImages.add(image);
+            }
+            mCooLon = dr.readDouble();
+            mCooLat = dr.readDouble();
+            return;
+        }
+
         mId = dr.readLong();
         mType = dr.readInt();
         mDate = dr.readLong();
@@ -361,6 +402,24 @@ public class GeocachingLog extends Storable {
 
     @Override
     protected void writeObject(DataWriterBigEndian dw) throws IOException {
+        // compact encoding
+        if (dw.isCompactEncoding()) {
+            dw.writeVarLongSigned(mId);
+            dw.writeVarIntSigned(mType);
+            dw.writeVarLongSigned(mDate);
+            dw.writeStringVar(mFinder);
+            dw.writeVarLongSigned(mFindersId);
+            dw.writeVarIntSigned(mFindersFound);
+            dw.writeStringVar(mLogText);
+            dw.writeVarInt(mImages.size());
+            for (int i = 0, m = mImages.size(); i < m; i++) {
+                dw.writeStorable(mImages.get(i));
+            }
+            dw.writeDouble(mCooLon);
+            dw.writeDouble(mCooLat);
+            return;
+        }
+
         dw.writeLong(mId);
         dw.writeInt(mType);
         dw.writeLong(mDate);
@@ -378,4 +437,4 @@ public class GeocachingLog extends Storable {
         dw.writeDouble(mCooLon);
         dw.writeDouble(mCooLat);
     }
-}
\ No newline at end of file
+}
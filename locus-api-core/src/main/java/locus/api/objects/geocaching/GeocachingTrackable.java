@@ -54,6 +54,15 @@ public class GeocachingTrackable extends Storable {
     // details
     private String mDetails;
 
+    static {
+        registerFactory(GeocachingTrackable.class, new Factory<GeocachingTrackable>() {
+            @Override
+            public GeocachingTrackable create() {
+                return new GeocachingTrackable();
+            }
+        });
+    }
+
     public GeocachingTrackable() {
         mName = "";
         mImgUrl = "";
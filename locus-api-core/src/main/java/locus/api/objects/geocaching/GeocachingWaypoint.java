@@ -74,6 +74,15 @@ public class GeocachingWaypoint extends Storable {
     // latitude of waypoint
     private double mLat;
 
+    static {
+        registerFactory(GeocachingWaypoint.class, new Factory<GeocachingWaypoint>() {
+            @Override
+            public GeocachingWaypoint create() {
+                return new GeocachingWaypoint();
+            }
+        });
+    }
+
     /**
      * Empty constructor.
      */
@@ -0,0 +1,461 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.objects.utils;
+
+import locus.api.objects.GeoData;
+import locus.api.objects.extra.BoundingBox;
+import locus.api.objects.extra.Circle;
+import locus.api.objects.extra.Location;
+import locus.api.objects.extra.Point;
+import locus.api.objects.extra.Track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable in-memory spatial index over {@link GeoData} objects.
+ * <br><br>
+ * Index is R-tree, bulk loaded by Sort-Tile-Recursive algorithm. Supported items are
+ * {@link Point}, {@link Circle} and {@link Track}, other items or items without any location
+ * are ignored. Items are indexed by their bounding box, distances to items are measured to
+ * nearest point of their bounding box (so exactly for points) on Earth approximated
+ * as sphere. Items crossing 180th meridian are not supported.
+ * <br><br>
+ * Index is not updated with changes of indexed items. Queries are thread-safe.
+ *
+ * @param <E> type of indexed items
+ */
+public class SpatialIndex<E extends GeoData> {
+
+    // maximal number of children of one node
+    private static final int NODE_CAPACITY = 16;
+    // number of metres per degree of latitude
+    private static final double METRES_PER_DEGREE =
+            LocationCompute.AVERAGE_RADIUS_OF_EARTH * Math.PI / 180.0;
+
+    // indexed items in order of leaf level
+    private final Object[] mItems;
+    // bounds of nodes on every level (level '0' are items),
+    // stored as [minLat, minLon, maxLat, maxLon]
+    private final double[][] mBounds;
+    // range of children of nodes on every level (level '0' has no children),
+    // stored as [start, end]
+    private final int[][] mChildren;
+
+    /**
+     * Create index over certain items.
+     *
+     * @param items items to index
+     */
+    public SpatialIndex(Collection<? extends E> items) {
+        // collect items with bounds
+        List<E> valid = new ArrayList<>(items.size());
+        List<double[]> bounds = new ArrayList<>(items.size());
+        BoundingBox box = new BoundingBox();
+        for (E item : items) {
+            if (getBounds(item, box)) {
+                valid.add(item);
+                bounds.add(new double[]{
+                        box.getMinLat(), box.getMinLon(), box.getMaxLat(), box.getMaxLon()});
+            }
+        }
+
+        // leaf level
+        int count = valid.size();
+        List<double[]> levelBounds = new ArrayList<>();
+        List<int[]> levelChildren = new ArrayList<>();
+        double[] level = new double[count * 4];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(bounds.get(i), 0, level, i * 4, 4);
+        }
+        int[] order = sortTiles(level, count);
+        mItems = new Object[count];
+        for (int i = 0; i < count; i++) {
+            mItems[i] = valid.get(order[i]);
+        }
+        level = reorderBounds(level, order);
+        levelBounds.add(level);
+        levelChildren.add(null);
+
+        // upper levels
+        while (count > 1) {
+            // create parent nodes
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] parentBounds = new double[parents * 4];
+            int[] parentChildren = new int[parents * 2];
+            for (int p = 0; p < parents; p++) {
+                int start = p * NODE_CAPACITY;
+                int end = Math.min(start + NODE_CAPACITY, count);
+                parentChildren[p * 2] = start;
+                parentChildren[p * 2 + 1] = end;
+                parentBounds[p * 4] = Double.POSITIVE_INFINITY;
+                parentBounds[p * 4 + 1] = Double.POSITIVE_INFINITY;
+                parentBounds[p * 4 + 2] = Double.NEGATIVE_INFINITY;
+                parentBounds[p * 4 + 3] = Double.NEGATIVE_INFINITY;
+                for (int c = start; c < end; c++) {
+                    parentBounds[p * 4] = Math.min(parentBounds[p * 4], level[c * 4]);
+                    parentBounds[p * 4 + 1] = Math.min(parentBounds[p * 4 + 1], level[c * 4 + 1]);
+                    parentBounds[p * 4 + 2] = Math.max(parentBounds[p * 4 + 2], level[c * 4 + 2]);
+                    parentBounds[p * 4 + 3] = Math.max(parentBounds[p * 4 + 3], level[c * 4 + 3]);
+                }
+            }
+
+            // sort parents for next level, children ranges move together with nodes
+            if (parents > 1) {
+                order = sortTiles(parentBounds, parents);
+                parentBounds = reorderBounds(parentBounds, order);
+                int[] sorted = new int[parents * 2];
+                for (int i = 0; i < parents; i++) {
+                    sorted[i * 2] = parentChildren[order[i] * 2];
+                    sorted[i * 2 + 1] = parentChildren[order[i] * 2 + 1];
+                }
+                parentChildren = sorted;
+            }
+            level = parentBounds;
+            levelBounds.add(level);
+            levelChildren.add(parentChildren);
+            count = parents;
+        }
+        mBounds = levelBounds.toArray(new double[levelBounds.size()][]);
+        mChildren = levelChildren.toArray(new int[levelChildren.size()][]);
+    }
+
+    //*************************************************
+    // QUERIES
+    //*************************************************
+
+    /**
+     * Get number of indexed items.
+     *
+     * @return number of items
+     */
+    public int size() {
+        return mItems.length;
+    }
+
+    /**
+     * Find all items, that intersect with certain area.
+     *
+     * @param box area to search
+     * @return found items
+     */
+    public List<E> queryRange(BoundingBox box) {
+        List<E> result = new ArrayList<>();
+        queryRange(box.getMinLat(), box.getMinLon(), box.getMaxLat(), box.getMaxLon(), result);
+        return result;
+    }
+
+    /**
+     * Find all items, that intersect with certain area.
+     *
+     * @param minLat minimal latitude of area
+     * @param minLon minimal longitude of area
+     * @param maxLat maximal latitude of area
+     * @param maxLon maximal longitude of area
+     * @param result list for found items
+     */
+    public void queryRange(double minLat, double minLon, double maxLat, double maxLon,
+            List<E> result) {
+        query(minLat, minLon, maxLat, maxLon, 0.0, 0.0, -1.0, result);
+    }
+
+    /**
+     * Find all items, that intersect with certain area and are within radius from location.
+     *
+     * @param radius radius in metres or negative value to not filter by distance
+     */
+    @SuppressWarnings("unchecked")
+    private void query(double minLat, double minLon, double maxLat, double maxLon,
+            double lat, double lon, double radius, List<E> result) {
+        if (mItems.length == 0) {
+            return;
+        }
+
+        // stack of nodes as pairs [level, index]
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = mBounds.length - 1;
+        stack[size++] = 0;
+        while (size > 0) {
+            int index = stack[--size];
+            int level = stack[--size];
+            double[] bounds = mBounds[level];
+            if (!intersects(bounds, index, minLat, minLon, maxLat, maxLon)) {
+                continue;
+            }
+            if (level == 0) {
+                if (radius < 0.0 || distanceTo(bounds, index, lat, lon) <= radius) {
+                    result.add((E) mItems[index]);
+                }
+                continue;
+            }
+
+            // add children
+            int[] children = mChildren[level];
+            int start = children[index * 2];
+            int end = children[index * 2 + 1];
+            if (size + (end - start) * 2 > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + (end - start) * 2));
+            }
+            for (int c = start; c < end; c++) {
+                stack[size++] = level - 1;
+                stack[size++] = c;
+            }
+        }
+    }
+
+    /**
+     * Find all items within certain distance from location.
+     *
+     * @param lat    latitude of location
+     * @param lon    longitude of location
+     * @param radius radius in metres
+     * @return found items
+     */
+    public List<E> queryRadius(double lat, double lon, double radius) {
+        // search in area around location
+        double dLat = radius / METRES_PER_DEGREE;
+        double minLon = -360.0;
+        double maxLon = 360.0;
+        if (Math.abs(lat) + dLat < 90.0) {
+            double dLon = dLat / Math.cos(Math.toRadians(Math.abs(lat) + dLat));
+            if (lon - dLon >= -180.0 && lon + dLon <= 180.0) {
+                minLon = lon - dLon;
+                maxLon = lon + dLon;
+            }
+        }
+
+        // area over pole or 180th meridian is searched in all longitudes
+        List<E> result = new ArrayList<>();
+        query(lat - dLat, minLon, lat + dLat, maxLon, lat, lon, radius, result);
+        return result;
+    }
+
+    /**
+     * Find nearest items to location.
+     *
+     * @param lat   latitude of location
+     * @param lon   longitude of location
+     * @param count maximal number of items
+     * @return found items sorted by distance
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> queryNearest(double lat, double lon, int count) {
+        List<E> result = new ArrayList<>(Math.max(0, Math.min(count, mItems.length)));
+        if (mItems.length == 0 || count <= 0) {
+            return result;
+        }
+
+        // best-first search over nodes
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(64, new Comparator<Candidate>() {
+
+            @Override
+            public int compare(Candidate c1, Candidate c2) {
+                return Double.compare(c1.mDistance, c2.mDistance);
+            }
+        });
+        int root = mBounds.length - 1;
+        queue.add(new Candidate(root, 0, distanceTo(mBounds[root], 0, lat, lon)));
+        while (!queue.isEmpty() && result.size() < count) {
+            Candidate cand = queue.poll();
+            if (cand.mLevel == 0) {
+                result.add((E) mItems[cand.mIndex]);
+                continue;
+            }
+            int[] children = mChildren[cand.mLevel];
+            double[] bounds = mBounds[cand.mLevel - 1];
+            for (int c = children[cand.mIndex * 2], end = children[cand.mIndex * 2 + 1];
+                    c < end; c++) {
+                queue.add(new Candidate(cand.mLevel - 1, c, distanceTo(bounds, c, lat, lon)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Node or item waiting for processing in nearest search.
+     */
+    private static class Candidate {
+
+        // level of node
+        private final int mLevel;
+        // index of node in level
+        private final int mIndex;
+        // distance to node
+        private final double mDistance;
+
+        private Candidate(int level, int index, double distance) {
+            this.mLevel = level;
+            this.mIndex = index;
+            this.mDistance = distance;
+        }
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    /**
+     * Get bounding box of item.
+     *
+     * @param item item to check
+     * @param box  box for result
+     * @return {@code true} if item has any location
+     */
+    public static boolean getBounds(GeoData item, BoundingBox box) {
+        box.reset();
+        if (item instanceof Point) {
+            Location loc = ((Point) item).getLocation();
+            if (loc != null) {
+                box.extend(loc.latitude, loc.longitude);
+            }
+        } else if (item instanceof Circle) {
+            Circle circle = (Circle) item;
+            Location loc = circle.getLocation();
+            if (loc != null) {
+                double dLat = circle.getRadius() / METRES_PER_DEGREE;
+                double dLon = Math.min(180.0, dLat / Math.cos(Math.toRadians(
+                        Math.min(89.0, Math.abs(loc.latitude) + dLat))));
+                box.set(loc.latitude - dLat, loc.longitude - dLon,
+                        loc.latitude + dLat, loc.longitude + dLon);
+            }
+        } else if (item instanceof Track) {
+            BoundingBox bounds = ((Track) item).getBounds();
+            if (bounds.isValid()) {
+                box.set(bounds.getMinLat(), bounds.getMinLon(),
+                        bounds.getMaxLat(), bounds.getMaxLon());
+            }
+        }
+        return box.isValid();
+    }
+
+    private static boolean intersects(double[] bounds, int index,
+            double minLat, double minLon, double maxLat, double maxLon) {
+        int i = index * 4;
+        return bounds[i] <= maxLat && bounds[i + 2] >= minLat
+                && bounds[i + 1] <= maxLon && bounds[i + 3] >= minLon;
+    }
+
+    /**
+     * Compute distance from location to nearest point of bounds of node. Nearest point is
+     * searched on sphere (not by clamping of coordinates), so result is never bigger then
+     * distance to any item in node.
+     */
+    private static double distanceTo(double[] bounds, int index, double lat, double lon) {
+        int i = index * 4;
+        double minLat = bounds[i];
+        double maxLat = bounds[i + 2];
+
+        // location is in range of longitudes, nearest point lies on same meridian
+        double span = bounds[i + 3] - bounds[i + 1];
+        double offset = lon - bounds[i + 1];
+        offset -= Math.floor(offset / 360.0) * 360.0;
+        if (span >= 360.0 || offset <= span) {
+            return LocationCompute.computeDistanceFast(lat, lon,
+                    Math.max(minLat, Math.min(maxLat, lat)), lon);
+        }
+
+        // otherwise nearest point lies on one of edge meridians
+        return Math.min(
+                distanceToMeridian(lat, lon, minLat, maxLat, bounds[i + 1]),
+                distanceToMeridian(lat, lon, minLat, maxLat, bounds[i + 3]));
+    }
+
+    /**
+     * Compute distance from location to part of meridian between two latitudes.
+     */
+    private static double distanceToMeridian(double lat, double lon,
+            double minLat, double maxLat, double meridian) {
+        double cosDLon = Math.cos(Math.toRadians(meridian - lon));
+        if (cosDLon <= 0.0) {
+            // nearest point of great circle lies behind pole, so nearest is one of ends
+            return Math.min(
+                    LocationCompute.computeDistanceFast(lat, lon, minLat, meridian),
+                    LocationCompute.computeDistanceFast(lat, lon, maxLat, meridian));
+        }
+
+        // foot of perpendicular from location to meridian, clamped to its part
+        double latRad = Math.toRadians(lat);
+        double nearLat = Math.toDegrees(Math.atan2(Math.sin(latRad), Math.cos(latRad) * cosDLon));
+        nearLat = Math.max(minLat, Math.min(maxLat, nearLat));
+        return LocationCompute.computeDistanceFast(lat, lon, nearLat, meridian);
+    }
+
+    /**
+     * Sort nodes by Sort-Tile-Recursive algorithm. Nodes are sorted into vertical slices
+     * by longitude of their center and inside of slices by latitude of center.
+     *
+     * @param bounds bounds of nodes
+     * @param count  number of nodes
+     * @return order of nodes
+     */
+    private static int[] sortTiles(final double[] bounds, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        // sort by longitude
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(bounds[i1 * 4 + 1] + bounds[i1 * 4 + 3],
+                        bounds[i2 * 4 + 1] + bounds[i2 * 4 + 3]);
+            }
+        });
+
+        // sort slices by latitude
+        int nodes = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * NODE_CAPACITY;
+        Comparator<Integer> byLat = new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(bounds[i1 * 4] + bounds[i1 * 4 + 2],
+                        bounds[i2 * 4] + bounds[i2 * 4 + 2]);
+            }
+        };
+        for (int start = 0; start < count; start += sliceSize) {
+            Arrays.sort(order, start, Math.min(start + sliceSize, count), byLat);
+        }
+
+        // convert result
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private static double[] reorderBounds(double[] bounds, int[] order) {
+        double[] result = new double[bounds.length];
+        for (int i = 0; i < order.length; i++) {
+            System.arraycopy(bounds, order[i] * 4, result, i * 4, 4);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.objects.utils;
+
+import locus.api.objects.extra.Location;
+import locus.api.objects.extra.Point;
+import locus.api.objects.extra.Track;
+import locus.api.objects.extra.TrackPoints;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplification (reduction of number of points) of track geometry.
+ * <br><br>
+ * Simplification is based on Douglas-Peucker algorithm, implemented without recursion.
+ * Tolerance is defined in metres, as maximal distance of removed point from simplified line.
+ * Distances are measured in local equirectangular projection, which is precise enough for
+ * distances between neighbour points of common tracks.
+ * <br><br>
+ * For simplification of track during its recording, use {@link Stream}.
+ */
+public class TrackSimplifier {
+
+    // number of metres per degree of latitude
+    private static final double METRES_PER_DEGREE =
+            LocationCompute.AVERAGE_RADIUS_OF_EARTH * Math.PI / 180.0;
+
+    private TrackSimplifier() {
+    }
+
+    //*************************************************
+    // TRACK
+    //*************************************************
+
+    /**
+     * Simplify points of track. First and last points of every segment (defined by breaks)
+     * and points nearest to waypoints of track are always kept. Breaks are updated to new
+     * indexes of points.
+     *
+     * @param track     track to simplify
+     * @param tolerance tolerance in metres
+     * @return number of removed points
+     */
+    public static int simplify(Track track, double tolerance) {
+        int count = track.getPointsCount();
+        if (count <= 2) {
+            return 0;
+        }
+
+        // prepare coordinates
+        double[] lats;
+        double[] lons;
+        if (track.isPointsCompact()) {
+            TrackPoints tp = track.getPointsCompact();
+            lats = tp.getLatitudes();
+            lons = tp.getLongitudes();
+        } else {
+            lats = new double[count];
+            lons = new double[count];
+            List<Location> points = track.getPoints();
+            for (int i = 0; i < count; i++) {
+                Location loc = points.get(i);
+                lats[i] = loc.latitude;
+                lons[i] = loc.longitude;
+            }
+        }
+
+        // points, that have to be kept
+        boolean[] keep = new boolean[count];
+        for (int i = 0, m = track.getBreaksCount(); i < m; i++) {
+            int index = track.getBreak(i);
+            if (index >= 0 && index < count - 1) {
+                keep[index] = true;
+                keep[index + 1] = true;
+            }
+        }
+        for (int i = 0, m = track.getWaypoints().size(); i < m; i++) {
+            Point wpt = track.getWaypoint(i);
+            Location loc = wpt.getLocation();
+            if (loc == null) {
+                continue;
+            }
+            int index = LocationCompute.findNearestPointFast(
+                    loc.latitude, loc.longitude, lats, lons, count);
+            if (index >= 0) {
+                keep[index] = true;
+            }
+        }
+
+        // simplify
+        simplify(lats, lons, count, tolerance, keep);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                kept++;
+            }
+        }
+        if (kept == count) {
+            return 0;
+        }
+
+        // update breaks to new indexes
+        int[] breaks = track.getBreaksArray();
+        for (int i = 0, b = 0, newIndex = -1; i < count && b < breaks.length; i++) {
+            if (keep[i]) {
+                newIndex++;
+            }
+            while (b < breaks.length && breaks[b] == i) {
+                breaks[b] = newIndex;
+                b++;
+            }
+            while (b < breaks.length && breaks[b] < i) {
+                b++;
+            }
+        }
+
+        // create new list of points
+        List<Location> points = track.getPoints();
+        if (track.isPointsCompact()) {
+            TrackPoints tp = (TrackPoints) points;
+            TrackPoints newPoints = new TrackPoints(kept);
+            Location loc = new Location();
+            for (int i = 0; i < count; i++) {
+                if (keep[i]) {
+                    newPoints.add(tp.get(i, loc));
+                }
+            }
+            track.setPoints(newPoints);
+        } else {
+            List<Location> newPoints = new ArrayList<>(kept);
+            for (int i = 0; i < count; i++) {
+                if (keep[i]) {
+                    newPoints.add(points.get(i));
+                }
+            }
+            track.setPoints(newPoints);
+        }
+        track.setBreaks(breaks);
+        return count - kept;
+    }
+
+    /**
+     * Simplify list of points.
+     *
+     * @param points    points to simplify
+     * @param tolerance tolerance in metres
+     * @return new list with kept points
+     */
+    public static List<Location> simplify(List<Location> points, double tolerance) {
+        int count = points.size();
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            Location loc = points.get(i);
+            lats[i] = loc.latitude;
+            lons[i] = loc.longitude;
+        }
+        boolean[] keep = simplify(lats, lons, count, tolerance, null);
+        List<Location> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                result.add(points.get(i));
+            }
+        }
+        return result;
+    }
+
+    //*************************************************
+    // DOUGLAS-PEUCKER
+    //*************************************************
+
+    /**
+     * Simplify sequence of points.
+     *
+     * @param lats      latitudes of points
+     * @param lons      longitudes of points
+     * @param count     number of points
+     * @param tolerance tolerance in metres
+     * @param keep      flags of points, that have to be kept (may be {@code null}). Array
+     *                  is filled with result
+     * @return flags of kept points
+     */
+    public static boolean[] simplify(double[] lats, double[] lons, int count,
+            double tolerance, boolean[] keep) {
+        if (keep == null) {
+            keep = new boolean[count];
+        }
+        if (count == 0) {
+            return keep;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+        if (count <= 2) {
+            return keep;
+        }
+
+        // project points to plane in metres
+        double sumLat = 0.0;
+        for (int i = 0; i < count; i++) {
+            sumLat += lats[i];
+        }
+        double lonScale = Math.cos(Math.toRadians(sumLat / count)) * METRES_PER_DEGREE;
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = lons[i] * lonScale;
+            ys[i] = lats[i] * METRES_PER_DEGREE;
+        }
+
+        // simplify ranges between points, that are kept from start
+        double tolSq = tolerance * tolerance;
+        int[] stack = new int[64];
+        for (int from = 0, to = 1; to < count; to++) {
+            if (!keep[to]) {
+                continue;
+            }
+            stack = simplifyRange(xs, ys, from, to, tolSq, keep, stack);
+            from = to;
+        }
+        return keep;
+    }
+
+    /**
+     * Simplify range of points between two kept points.
+     *
+     * @return stack array (possibly enlarged) for reuse
+     */
+    private static int[] simplifyRange(double[] xs, double[] ys, int from, int to,
+            double tolSq, boolean[] keep, int[] stack) {
+        int size = 0;
+        stack[size++] = from;
+        stack[size++] = to;
+        while (size > 0) {
+            int last = stack[--size];
+            int first = stack[--size];
+            if (last - first < 2) {
+                continue;
+            }
+
+            // find most distant point
+            int index = -1;
+            double maxDistSq = tolSq;
+            for (int i = first + 1; i < last; i++) {
+                double distSq = distanceToSegmentSq(xs[i], ys[i],
+                        xs[first], ys[first], xs[last], ys[last]);
+                if (distSq > maxDistSq) {
+                    maxDistSq = distSq;
+                    index = i;
+                }
+            }
+            if (index < 0) {
+                continue;
+            }
+
+            // keep point and continue on both parts
+            keep[index] = true;
+            if (size + 4 > stack.length) {
+                int[] newStack = new int[stack.length * 2];
+                System.arraycopy(stack, 0, newStack, 0, size);
+                stack = newStack;
+            }
+            stack[size++] = first;
+            stack[size++] = index;
+            stack[size++] = index;
+            stack[size++] = last;
+        }
+        return stack;
+    }
+
+    /**
+     * Compute squared distance of point from segment.
+     */
+    private static double distanceToSegmentSq(double px, double py,
+            double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lenSq = dx * dx + dy * dy;
+        double t = 0.0;
+        if (lenSq > 0.0) {
+            t = ((px - ax) * dx + (py - ay) * dy) / lenSq;
+            t = Math.max(0.0, Math.min(1.0, t));
+        }
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    //*************************************************
+    // STREAMING
+    //*************************************************
+
+    /**
+     * Simplification of points added one by one, for example during recording of track.
+     * <br><br>
+     * Simplifier keeps window of points since last kept point. New point is accepted into
+     * window if all points of window are within tolerance from line between last kept point
+     * and new point. Otherwise previous point is confirmed as kept and new window starts.
+     * Every added point is processed in time limited by maximal size of window.
+     */
+    public static class Stream {
+
+        // maximal number of points in window
+        private static final int MAX_WINDOW = 256;
+
+        // squared tolerance
+        private final double mTolSq;
+        // projected coordinates of points in window, first point is last kept point
+        private final double[] mXs;
+        private final double[] mYs;
+        // number of points in window
+        private int mSize;
+        // scale of longitude, defined by first point
+        private double mLonScale;
+        // number of added points
+        private int mCount;
+
+        /**
+         * Create new streaming simplifier.
+         *
+         * @param tolerance tolerance in metres
+         */
+        public Stream(double tolerance) {
+            mTolSq = tolerance * tolerance;
+            mXs = new double[MAX_WINDOW];
+            mYs = new double[MAX_WINDOW];
+            mSize = 0;
+            mCount = 0;
+        }
+
+        /**
+         * Add next point.
+         *
+         * @param loc location of point
+         * @return index of point, that is confirmed to be kept, or '-1' if no point was
+         * confirmed. Points are indexed in order in which were added
+         */
+        public int add(Location loc) {
+            return add(loc.latitude, loc.longitude);
+        }
+
+        /**
+         * Add next point.
+         *
+         * @param lat latitude of point
+         * @param lon longitude of point
+         * @return index of point, that is confirmed to be kept, or '-1' if no point was
+         * confirmed. Points are indexed in order in which were added
+         */
+        public int add(double lat, double lon) {
+            int index = mCount++;
+
+            // first point is always kept
+            if (index == 0) {
+                mLonScale = Math.cos(Math.toRadians(lat)) * METRES_PER_DEGREE;
+                mXs[0] = lon * mLonScale;
+                mYs[0] = lat * METRES_PER_DEGREE;
+                mSize = 1;
+                return 0;
+            }
+
+            // check if window may be extended by new point
+            double x = lon * mLonScale;
+            double y = lat * METRES_PER_DEGREE;
+            boolean valid = mSize < MAX_WINDOW;
+            for (int i = 1; valid && i < mSize; i++) {
+                if (distanceToSegmentSq(mXs[i], mYs[i], mXs[0], mYs[0], x, y) > mTolSq) {
+                    valid = false;
+                }
+            }
+            if (valid) {
+                mXs[mSize] = x;
+                mYs[mSize] = y;
+                mSize++;
+                return -1;
+            }
+
+            // keep previous point and start new window
+            mXs[0] = mXs[mSize - 1];
+            mYs[0] = mYs[mSize - 1];
+            mXs[1] = x;
+            mYs[1] = y;
+            mSize = 2;
+            return index - 1;
+        }
+
+        /**
+         * Finish simplification. Last added point is always kept.
+         *
+         * @return index of last point, if it was not confirmed yet, otherwise '-1'
+         */
+        public int finish() {
+            int last = mSize > 1 ? mCount - 1 : -1;
+            mSize = 0;
+            mCount = 0;
+            return last;
+        }
+    }
+}
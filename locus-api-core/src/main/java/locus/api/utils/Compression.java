@@ -0,0 +1,480 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Optional compression of serialized data.
+ * <br><br>
+ * Compressed data are stored in frame: magic number (4 bytes), codec ID (1 byte), size of
+ * uncompressed data (int) and size of compressed data (int), followed by compressed data.
+ * First byte of magic number is negative, so frame cannot be mistaken for list or object
+ * serialized by {@link locus.api.objects.Storable}, which always starts with non-negative
+ * count or version. This allows transparent detection of compressed data on read by top-level
+ * entry points, see {@link locus.api.objects.Storable#read(byte[])},
+ * {@link locus.api.objects.Storable#readList(Class, byte[])} and
+ * {@link DataReaderBigEndian#DataReaderBigEndian(java.io.InputStream)}.
+ * <br><br>
+ * Two codecs are available: fast LZ codec (LZ4 block format) implemented in pure Java, used
+ * for smaller data, and {@link Deflater}, used for bigger data, where better ratio is
+ * more important then speed.
+ */
+public class Compression {
+
+    /**
+     * Magic number at start of every frame.
+     */
+    public static final int MAGIC = 0x894C4346;
+    /**
+     * Size of frame header.
+     */
+    public static final int HEADER_SIZE = 13;
+
+    /**
+     * Data stored without compression.
+     */
+    public static final int CODEC_NONE = 0;
+    /**
+     * Fast LZ codec.
+     */
+    public static final int CODEC_LZ = 1;
+    /**
+     * Deflate codec.
+     */
+    public static final int CODEC_DEFLATE = 2;
+
+    // data smaller then this limit are not compressed at all
+    private static final int MIN_SIZE = 256;
+    // data bigger then this limit are compressed by deflate
+    private static final int LZ_MAX_SIZE = 512 * 1024;
+    // max size of uncompressed data in frame
+    private static final int MAX_RAW_SIZE = 256 * 1024 * 1024;
+    // max ratio of uncompressed and compressed size (deflate max. ratio is ~1032, LZ ~255)
+    private static final int MAX_RATIO = 1100;
+
+    // LZ parameters
+    private static final int LZ_MIN_MATCH = 4;
+    private static final int LZ_HASH_LOG = 14;
+    private static final int LZ_MAX_OFFSET = 65535;
+    private static final int LZ_LAST_LITERALS = 5;
+    private static final int LZ_MF_LIMIT = 12;
+
+    private Compression() {
+    }
+
+    //*************************************************
+    // FRAME
+    //*************************************************
+
+    /**
+     * Compress data with codec selected by size of data. Small data, or data that cannot be
+     * compressed, are returned without any change (without frame).
+     *
+     * @param data data to compress
+     * @return framed compressed data or original data
+     */
+    public static byte[] compress(byte[] data) {
+        if (data == null || data.length < MIN_SIZE) {
+            return data;
+        }
+        int codec = data.length <= LZ_MAX_SIZE ? CODEC_LZ : CODEC_DEFLATE;
+        byte[] result = compress(data, 0, data.length, codec);
+        if (result.length >= data.length) {
+            return data;
+        }
+        return result;
+    }
+
+    /**
+     * Compress data by certain codec.
+     *
+     * @param data   array with data
+     * @param offset offset of data in array
+     * @param length length of data
+     * @param codec  codec to use
+     * @return framed compressed data
+     */
+    public static byte[] compress(byte[] data, int offset, int length, int codec) {
+        byte[] result;
+        switch (codec) {
+            case CODEC_NONE:
+                result = new byte[HEADER_SIZE + length];
+                System.arraycopy(data, offset, result, HEADER_SIZE, length);
+                break;
+            case CODEC_LZ:
+                result = compressLz(data, offset, length, HEADER_SIZE);
+                break;
+            case CODEC_DEFLATE:
+                result = compressDeflate(data, offset, length, HEADER_SIZE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown codec:" + codec);
+        }
+
+        // fill header of frame
+        writeInt(result, 0, MAGIC);
+        result[4] = (byte) codec;
+        writeInt(result, 5, length);
+        writeInt(result, 9, result.length - HEADER_SIZE);
+        return result;
+    }
+
+    /**
+     * Check if data starts with frame of compressed data.
+     *
+     * @param data   array with data
+     * @param offset offset of data in array
+     * @param length length of data
+     * @return {@code true} if data are compressed
+     */
+    public static boolean isCompressed(byte[] data, int offset, int length) {
+        return data != null && length >= HEADER_SIZE && readInt(data, offset) == MAGIC;
+    }
+
+    /**
+     * Decompress data, if they are compressed.
+     *
+     * @param data data to decompress
+     * @return uncompressed data or original data in case they are not compressed
+     * @throws IOException thrown in case of invalid data
+     */
+    public static byte[] decompressIfNeeded(byte[] data) throws IOException {
+        if (!isCompressed(data, 0, data == null ? 0 : data.length)) {
+            return data;
+        }
+        return decompress(data, 0, data.length);
+    }
+
+    /**
+     * Decompress framed data.
+     *
+     * @param data   array with data
+     * @param offset offset of frame in array
+     * @param length length of frame
+     * @return uncompressed data
+     * @throws IOException thrown in case of invalid data
+     */
+    public static byte[] decompress(byte[] data, int offset, int length) throws IOException {
+        if (!isCompressed(data, offset, length)) {
+            throw new IOException("Data are not compressed");
+        }
+        int codec = data[offset + 4];
+        int rawSize = readInt(data, offset + 5);
+        int packedSize = readInt(data, offset + 9);
+        checkSizes(rawSize, packedSize);
+        if (packedSize > length - HEADER_SIZE) {
+            throw new IOException("Invalid frame, size:" + rawSize + ", " + packedSize);
+        }
+        return decompress(codec, data, offset + HEADER_SIZE, packedSize, rawSize);
+    }
+
+    /**
+     * Read rest of frame from stream and decompress it. Expected is, that magic number
+     * was already read from stream.
+     *
+     * @param input stream positioned behind magic number
+     * @return uncompressed data
+     * @throws IOException thrown in case of invalid data
+     */
+    public static byte[] decompressFrameBody(InputStream input) throws IOException {
+        byte[] header = new byte[HEADER_SIZE - 4];
+        readFully(input, header, 0, header.length);
+        int rawSize = readInt(header, 1);
+        int packedSize = readInt(header, 5);
+        checkSizes(rawSize, packedSize);
+        byte[] packed = new byte[packedSize];
+        readFully(input, packed, 0, packedSize);
+        return decompress(header[0], packed, 0, packedSize, rawSize);
+    }
+
+    /**
+     * Check sizes from header of frame before any allocation, so invalid data cannot
+     * allocate huge arrays.
+     */
+    private static void checkSizes(int rawSize, int packedSize) throws IOException {
+        if (rawSize < 0 || packedSize < 0
+                || rawSize > MAX_RAW_SIZE || packedSize > MAX_RAW_SIZE
+                || rawSize > (long) packedSize * MAX_RATIO + HEADER_SIZE) {
+            throw new IOException("Invalid frame, size:" + rawSize + ", " + packedSize);
+        }
+    }
+
+    private static byte[] decompress(int codec, byte[] data, int offset, int length,
+            int rawSize) throws IOException {
+        byte[] result = new byte[rawSize];
+        switch (codec) {
+            case CODEC_NONE:
+                if (length != rawSize) {
+                    throw new IOException("Invalid size of stored data");
+                }
+                System.arraycopy(data, offset, result, 0, rawSize);
+                break;
+            case CODEC_LZ:
+                decompressLz(data, offset, length, result);
+                break;
+            case CODEC_DEFLATE:
+                decompressDeflate(data, offset, length, result);
+                break;
+            default:
+                throw new IOException("Unknown codec:" + codec);
+        }
+        return result;
+    }
+
+    //*************************************************
+    // LZ CODEC
+    //*************************************************
+
+    /**
+     * Compress data into LZ4 block format.
+     *
+     * @param reserved number of bytes reserved at start of result
+     * @return array with reserved space followed by compressed data
+     */
+    private static byte[] compressLz(byte[] src, int offset, int length, int reserved) {
+        byte[] dst = new byte[reserved + length + length / 255 + 16];
+        int end = offset + length;
+        int anchor = offset;
+        int op = reserved;
+
+        // find matches
+        if (length >= LZ_MF_LIMIT + 1) {
+            int[] table = new int[1 << LZ_HASH_LOG];
+            Arrays.fill(table, -1);
+            int matchLimit = end - LZ_LAST_LITERALS;
+            int mfLimit = end - LZ_MF_LIMIT;
+            int ip = offset;
+            while (ip < mfLimit) {
+                int seq = readInt(src, ip);
+                int hash = (seq * -1640531535) >>> (32 - LZ_HASH_LOG);
+                int ref = table[hash];
+                table[hash] = ip;
+                if (ref < 0 || ip - ref > LZ_MAX_OFFSET || readInt(src, ref) != seq) {
+                    // skip faster over data without matches
+                    ip += 1 + ((ip - anchor) >>> 6);
+                    continue;
+                }
+
+                // extend match backward and forward
+                while (ip > anchor && ref > offset && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = LZ_MIN_MATCH;
+                while (ip + matchLength < matchLimit
+                        && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                // write sequence
+                int literals = ip - anchor;
+                int ml = matchLength - LZ_MIN_MATCH;
+                dst[op++] = (byte) ((Math.min(literals, 15) << 4) | Math.min(ml, 15));
+                op = writeLzLength(dst, op, literals);
+                System.arraycopy(src, anchor, dst, op, literals);
+                op += literals;
+                int distance = ip - ref;
+                dst[op++] = (byte) distance;
+                dst[op++] = (byte) (distance >>> 8);
+                op = writeLzLength(dst, op, ml);
+
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+
+        // write last literals
+        int literals = end - anchor;
+        dst[op++] = (byte) (Math.min(literals, 15) << 4);
+        op = writeLzLength(dst, op, literals);
+        System.arraycopy(src, anchor, dst, op, literals);
+        return Arrays.copyOf(dst, op + literals);
+    }
+
+    /**
+     * Write extension of length stored in token (for lengths 15 and more).
+     */
+    private static int writeLzLength(byte[] dst, int op, int length) {
+        if (length < 15) {
+            return op;
+        }
+        length -= 15;
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    /**
+     * Decompress data in LZ4 block format.
+     */
+    private static void decompressLz(byte[] src, int offset, int length, byte[] dst)
+            throws IOException {
+        int ip = offset;
+        int end = offset + length;
+        int op = 0;
+        try {
+            while (ip < end) {
+                int token = src[ip++] & 0xFF;
+
+                // literals
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (literals > end - ip || literals > dst.length - op) {
+                    throw new IOException("Invalid length of literals");
+                }
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip == end) {
+                    break;
+                }
+
+                // match
+                int distance = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                if (distance == 0 || distance > op) {
+                    throw new IOException("Invalid offset of match:" + distance);
+                }
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += LZ_MIN_MATCH;
+                if (matchLength > dst.length - op) {
+                    throw new IOException("Invalid length of match");
+                }
+                int ref = op - distance;
+                if (distance >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                    op += matchLength;
+                } else {
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op++] = dst[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Invalid compressed data");
+        }
+        if (op != dst.length) {
+            throw new IOException("Invalid size of decompressed data:" + op);
+        }
+    }
+
+    //*************************************************
+    // DEFLATE CODEC
+    //*************************************************
+
+    /**
+     * Compress data by deflate.
+     *
+     * @param reserved number of bytes reserved at start of result
+     * @return array with reserved space followed by compressed data
+     */
+    private static byte[] compressDeflate(byte[] src, int offset, int length, int reserved) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(src, offset, length);
+            deflater.finish();
+            byte[] dst = new byte[reserved + length / 2 + 64];
+            int size = reserved;
+            while (!deflater.finished()) {
+                if (size == dst.length) {
+                    dst = Arrays.copyOf(dst, dst.length * 2);
+                }
+                size += deflater.deflate(dst, size, dst.length - size);
+            }
+            return Arrays.copyOf(dst, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void decompressDeflate(byte[] src, int offset, int length, byte[] dst)
+            throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(src, offset, length);
+            int size = 0;
+            while (size < dst.length) {
+                int count = inflater.inflate(dst, size, dst.length - size);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                size += count;
+            }
+            if (size != dst.length) {
+                throw new IOException("Invalid size of decompressed data:" + size);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16
+                | (data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF);
+    }
+
+    private static void writeInt(byte[] data, int offset, int v) {
+        data[offset] = (byte) (v >>> 24);
+        data[offset + 1] = (byte) (v >>> 16);
+        data[offset + 2] = (byte) (v >>> 8);
+        data[offset + 3] = (byte) v;
+    }
+
+    private static void readFully(InputStream input, byte[] data, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            int count = input.read(data, offset, length);
+            if (count < 0) {
+                throw new IOException("Unexpected end of compressed data");
+            }
+            offset += count;
+            length -= count;
+        }
+    }
+}
@@ -1,54 +1,499 @@
 package locus.api.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import locus.api.objects.Storable;
+import locus.api.objects.extra.GeoDataStyle;
 
 public class DataReaderBigEndian {
 
     // tag for logger
     private static final String TAG = "DataReaderBigEndian";
 
+    // default size of buffer used for reading from streams
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+    // value of limit for reader that is not bounded
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    /**
+     * Mask used to decode all sections of objects.
+     */
+    public static final int DECODE_ALL = -1;
+
+    /**
+     * Source of data for streaming reader. Reader pulls data from source into own buffer
+     * only when they are really needed, so data of any size may be read with constant memory.
+     */
+    public interface Source {
+
+        /**
+         * Read up to 'length' bytes into buffer. Method has to block until at least one byte
+         * is available, source that returns no data is considered as broken.
+         *
+         * @param buffer buffer to fill
+         * @param offset offset in buffer
+         * @param length maximal number of bytes to read
+         * @return number of read bytes (at least one) or '-1' if end of data was reached
+         * @throws IOException thrown in case of problem with source
+         */
+        int read(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Cache of short texts. Texts like provider names or style IDs usually repeat in data
+     * many times, so cache allows to share single instance of such text and to skip
+     * its decoding.
+     */
+    public static class StringCache {
+
+        // max length (in bytes) of cached texts
+        private static final int MAX_LENGTH = 64;
+
+        // encoded form of cached texts
+        private final byte[][] mKeys;
+        // cached texts
+        private final String[] mValues;
+        // mask for computing index in cache
+        private final int mMask;
+
+        /**
+         * Create cache with default size.
+         */
+        public StringCache() {
+            this(1024);
+        }
+
+        /**
+         * Create cache with certain size.
+         *
+         * @param size number of cached items, rounded up to the power of two
+         */
+        public StringCache(int size) {
+            int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+            mKeys = new byte[capacity][];
+            mValues = new String[capacity];
+            mMask = capacity - 1;
+        }
+
+        /**
+         * Get text encoded in certain part of array.
+         *
+         * @param data   array with data
+         * @param offset offset of text
+         * @param length length of text in bytes
+         * @return decoded text
+         */
+        String get(byte[] data, int offset, int length) {
+            if (length > MAX_LENGTH) {
+                return new String(data, offset, length, Utils.UTF8);
+            }
+
+            // compute hash
+            int hash = length;
+            for (int i = offset, m = offset + length; i < m; i++) {
+                hash = 31 * hash + data[i];
+            }
+            int index = (hash ^ (hash >>> 16)) & mMask;
+
+            // check cached item
+            byte[] key = mKeys[index];
+            if (key != null && key.length == length) {
+                boolean equals = true;
+                for (int i = 0; i < length; i++) {
+                    if (key[i] != data[offset + i]) {
+                        equals = false;
+                        break;
+                    }
+                }
+                if (equals) {
+                    return mValues[index];
+                }
+            }
+
+            // decode and store new item
+            String value = new String(data, offset, length, Utils.UTF8);
+            mKeys[index] = Arrays.copyOfRange(data, offset, offset + length);
+            mValues[index] = value;
+            return value;
+        }
+    }
+
     // current position in buffer
     private int mPosition;
     // buffer with data
     private byte[] mBuffer;
+    // index of first byte of this reader in buffer
+    private int mStart;
+    // index behind last valid byte in buffer
+    private int mEnd;
+    // position of 'mStart' index in whole stream of data
+    private long mBase;
+    // current read limit as position in stream. Reader is bounded to slice of data if set
+    private long mLimit;
+    // index behind last byte that may be read from buffer without any checks
+    private int mReadEnd;
+    // optional source of data for streaming mode
+    private Source mSource;
+    // optional cache for repeated texts
+    private StringCache mStringCache;
+    // optional cache for sharing of identical styles
+    private GeoDataStyle.Cache mStyleCache;
+    // mask of sections, that should be decoded by objects supporting partial decoding
+    private int mDecodeMask = DECODE_ALL;
 
+    /**
+     * Create reader over byte array. Data compressed by {@link Compression} are not detected,
+     * use {@link Compression#decompressIfNeeded(byte[])} for top-level data if needed.
+     *
+     * @param data array with data
+     * @throws IOException thrown in case of invalid parameters
+     */
     public DataReaderBigEndian(byte[] data) throws IOException {
-        if (data == null) {
+        this(data, 0, data == null ? 0 : data.length);
+    }
+
+    /**
+     * Create reader over part of existing byte array. Data are not copied, reader works
+     * directly over defined region of array.
+     *
+     * @param data   array with data
+     * @param offset index of first byte to read
+     * @param length number of bytes available for reader
+     * @throws IOException thrown in case of invalid parameters
+     */
+    public DataReaderBigEndian(byte[] data, int offset, int length) throws IOException {
+        if (data == null || offset < 0 || length < 0 || offset + length > data.length) {
             throw new IOException("Invalid parameter");
         }
-        this.mPosition = 0;
         this.mBuffer = data;
+        this.mStart = offset;
+        this.mEnd = offset + length;
+        this.mPosition = offset;
+        this.mBase = 0L;
+        this.mLimit = length;
+        this.mSource = null;
+        updateReadEnd();
+    }
+
+    /**
+     * Create streaming reader over generic source of data.
+     *
+     * @param source     source of data
+     * @param bufferSize initial size of internal buffer
+     * @throws IOException thrown in case of invalid parameters
+     */
+    public DataReaderBigEndian(Source source, int bufferSize) throws IOException {
+        if (source == null || bufferSize <= 0) {
+            throw new IOException("Invalid parameter");
+        }
+        this.mBuffer = new byte[bufferSize];
+        this.mStart = 0;
+        this.mEnd = 0;
+        this.mPosition = 0;
+        this.mBase = 0L;
+        this.mLimit = NO_LIMIT;
+        this.mSource = source;
+        updateReadEnd();
+    }
+
+    /**
+     * Create streaming reader over input stream. Stream is not closed by reader. Data
+     * compressed by {@link Compression} are detected and decompressed automatically.
+     *
+     * @param input stream with data
+     * @throws IOException thrown in case of invalid parameters or invalid compressed data
+     */
+    public DataReaderBigEndian(InputStream input) throws IOException {
+        this(input == null ? null : createSource(input), STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Create source over input stream. Start of stream is checked for frame of compressed
+     * data, compressed data are decompressed into memory.
+     */
+    private static Source createSource(final InputStream input) throws IOException {
+        // read possible magic number
+        final byte[] head = new byte[4];
+        int headSize = 0;
+        while (headSize < head.length) {
+            int count = input.read(head, headSize, head.length - headSize);
+            if (count < 0) {
+                break;
+            }
+            headSize += count;
+        }
+
+        // compressed data
+        if (headSize == head.length && Compression.readInt(head, 0) == Compression.MAGIC) {
+            final byte[] data = Compression.decompressFrameBody(input);
+            return new Source() {
+
+                private int mPos = 0;
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    if (mPos == data.length) {
+                        return -1;
+                    }
+                    int count = Math.min(length, data.length - mPos);
+                    System.arraycopy(data, mPos, buffer, offset, count);
+                    mPos += count;
+                    return count;
+                }
+            };
+        }
+
+        // plain data, return already read bytes first
+        final int headCount = headSize;
+        return new Source() {
+
+            private int mHeadPos = 0;
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (mHeadPos < headCount) {
+                    int count = Math.min(length, headCount - mHeadPos);
+                    System.arraycopy(head, mHeadPos, buffer, offset, count);
+                    mHeadPos += count;
+                    return count;
+                }
+                return input.read(buffer, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Create streaming reader over channel. Channel is not closed by reader. Channel has to
+     * be in blocking mode.
+     *
+     * @param channel channel with data
+     * @throws IOException thrown in case of invalid parameters or non-blocking channel
+     */
+    public DataReaderBigEndian(final ReadableByteChannel channel) throws IOException {
+        this(checkBlocking(channel) ? new Source() {
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return channel.read(ByteBuffer.wrap(buffer, offset, length));
+            }
+        } : null, STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Check, that channel blocks during read. Non-blocking channel may return no data,
+     * which streaming reader is not able to handle.
+     *
+     * @return {@code false} if channel is not defined
+     */
+    private static boolean checkBlocking(ReadableByteChannel channel) throws IOException {
+        if (channel instanceof SelectableChannel
+                && !((SelectableChannel) channel).isBlocking()) {
+            throw new IOException("Non-blocking channel is not supported");
+        }
+        return channel != null;
+    }
+
+    /**
+     * Create streaming reader over byte buffer, for example memory-mapped file. Content
+     * of buffer between it's current position and limit is read.
+     *
+     * @param data buffer with data
+     * @throws IOException thrown in case of invalid parameters
+     */
+    public DataReaderBigEndian(final ByteBuffer data) throws IOException {
+        this(data == null ? null : new Source() {
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (!data.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, data.remaining());
+                data.get(buffer, offset, count);
+                return count;
+            }
+        }, STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Create reader over content of file channel mapped into memory. Channel may be closed
+     * right after this call.
+     *
+     * @param channel channel of file to read
+     * @return reader over mapped file
+     * @throws IOException thrown in case file cannot be mapped
+     */
+    public static DataReaderBigEndian map(FileChannel channel) throws IOException {
+        long size = channel.size() - channel.position();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("File too big for mapping, size:" + size);
+        }
+        return new DataReaderBigEndian(channel.map(
+                FileChannel.MapMode.READ_ONLY, channel.position(), size));
     }
 
     /**
      * Get length of current stream.
      *
-     * @return length of stream
+     * @return length of stream or '-1' for streaming reader, where length is not known
      */
     public long length() {
-        return mBuffer.length;
+        if (mSource != null) {
+            return -1L;
+        }
+        return mEnd - mStart;
     }
 
     /**
-     * Get number of available bytes to read till end.
+     * Get number of available bytes to read till end (or till end of current slice). For
+     * streaming reader outside of any slice, this returns only number of buffered bytes.
      *
      * @return number of available bytes
      */
     public int available() {
-        return mBuffer.length - mPosition;
+        if (mLimit == NO_LIMIT) {
+            return mEnd - mPosition;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, mLimit - getPositionInStream());
     }
 
     /**
-     * Move cursor to certain position.
+     * Move cursor to certain position. Streaming reader may move only over currently
+     * buffered data.
      *
      * @param pos position where to move
      */
     public void seek(int pos) {
-        mPosition = pos;
+        long index = pos - mBase + mStart;
+        if (index < mStart || index > mEnd) {
+            throw new IllegalArgumentException("Invalid seek position:" + pos);
+        }
+        mPosition = (int) index;
+    }
+
+    /**
+     * Set cache for repeated texts, that allows to share instances of same texts. Cache
+     * may be shared by more readers, but only in single thread.
+     *
+     * @param cache cache to use or 'null' to disable caching
+     */
+    public void setStringCache(StringCache cache) {
+        this.mStringCache = cache;
+    }
+
+    /**
+     * Get cache for sharing of identical styles.
+     *
+     * @return cache or 'null' if not set
+     */
+    public GeoDataStyle.Cache getStyleCache() {
+        return mStyleCache;
+    }
+
+    /**
+     * Set cache for sharing of identical styles of read objects. Cache may be shared by more
+     * readers, but only in single thread. Shared styles must not be modified directly, see
+     * {@link GeoDataStyle.Cache}.
+     *
+     * @param cache cache to use or 'null' to disable sharing
+     */
+    public void setStyleCache(GeoDataStyle.Cache cache) {
+        this.mStyleCache = cache;
+    }
+
+    /**
+     * Get mask of sections, that should be decoded.
+     *
+     * @return mask of sections
+     */
+    public int getDecodeMask() {
+        return mDecodeMask;
+    }
+
+    /**
+     * Set mask of sections, that should be decoded by objects supporting partial decoding
+     * (see 'GeoData.DECODE_' constants). Skipped sections are kept in raw form and may be
+     * decoded later. Mask is used also for all nested objects.
+     *
+     * @param mask mask of sections or {@link #DECODE_ALL}
+     */
+    public void setDecodeMask(int mask) {
+        this.mDecodeMask = mask;
+    }
+
+    // SLICES
+
+    /**
+     * Limit reader to next 'size' bytes. All reads after this call are bounded to defined
+     * slice of data, which allows to read nested objects directly from parent buffer
+     * without a need to copy them. Every call has to be followed by {@link #endSlice(long)}.
+     *
+     * @param size size of slice in bytes
+     * @return previous limit that has to be passed to {@link #endSlice(long)}
+     * @throws IOException thrown in case, slice does not fit into available data
+     */
+    public long startSlice(int size) throws IOException {
+        long sliceEnd = getPositionInStream() + size;
+        if (size < 0 || sliceEnd > mLimit) {
+            throw new IOException("Invalid slice size:" + size + ", " +
+                    "available:" + available());
+        }
+        long prevLimit = mLimit;
+        mLimit = sliceEnd;
+        updateReadEnd();
+        return prevLimit;
+    }
+
+    /**
+     * Finish reading of slice started by {@link #startSlice(int)}. Cursor is moved to
+     * the end of slice, so any unread (unknown) trailing data are skipped.
+     *
+     * @param prevLimit limit returned by {@link #startSlice(int)}
+     */
+    public void endSlice(long prevLimit) {
+        skip((int) (mLimit - getPositionInStream()));
+        mLimit = prevLimit;
+        updateReadEnd();
+    }
+
+    /**
+     * Skip certain number of bytes.
+     *
+     * @param count number of bytes to skip
+     */
+    public void skip(int count) {
+        if (mSource == null || count <= mEnd - mPosition) {
+            checkPosition(count);
+            return;
+        }
+
+        // check limit
+        if (count < 0 || getPositionInStream() + count > mLimit) {
+            throw new ArrayIndexOutOfBoundsException("Invalid skip count:" + count);
+        }
+
+        // drop buffered data and skip rest directly in source
+        int remaining = count - (mEnd - mPosition);
+        mBase += mEnd - mStart;
+        mStart = 0;
+        mEnd = 0;
+        mPosition = 0;
+        while (remaining > 0) {
+            int read = readFromSource(0, Math.min(remaining, mBuffer.length));
+            mBase += read;
+            remaining -= read;
+        }
+        updateReadEnd();
     }
 
     // READ FUNCTIONS
@@ -70,10 +515,12 @@ public class DataReaderBigEndian {
     }
 
     public void readBytes(byte[] data) {
-        checkPosition(data.length);
+        readBytes(data, 0, data.length);
+    }
 
-        // create new temp array
-        System.arraycopy(mBuffer, mPosition - data.length, data, 0, data.length);
+    public void readBytes(byte[] data, int offset, int count) {
+        checkPosition(count);
+        System.arraycopy(mBuffer, mPosition - count, data, offset, count);
     }
 
     public boolean readBoolean() {
@@ -115,14 +562,98 @@ public class DataReaderBigEndian {
         return Double.longBitsToDouble(readLong());
     }
 
+    /**
+     * Read integer stored as variable-length value (LEB128).
+     *
+     * @return read value
+     * @throws IOException thrown in case of invalid data format
+     */
+    public int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Invalid variable-length integer");
+    }
+
+    /**
+     * Read signed integer stored as variable-length value with ZigZag encoding.
+     *
+     * @return read value
+     * @throws IOException thrown in case of invalid data format
+     */
+    public int readVarIntSigned() throws IOException {
+        int v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Read long stored as variable-length value (LEB128).
+     *
+     * @return read value
+     * @throws IOException thrown in case of invalid data format
+     */
+    public long readVarLong() throws IOException {
+        long result = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Invalid variable-length long");
+    }
+
+    /**
+     * Read signed long stored as variable-length value with ZigZag encoding.
+     *
+     * @return read value
+     * @throws IOException thrown in case of invalid data format
+     */
+    public long readVarLongSigned() throws IOException {
+        long v = readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
     public String readString() throws IOException {
         int textLength = readInt();
         if (textLength == 0) {
             return "";
         } else {
             checkPosition(textLength);
+            if (mStringCache != null) {
+                return mStringCache.get(mBuffer, mPosition - textLength, textLength);
+            }
             return new String(mBuffer,
-                    mPosition - textLength, textLength, "UTF-8");
+                    mPosition - textLength, textLength, Utils.UTF8);
+        }
+    }
+
+    /**
+     * Read text prefixed by it's length written as variable-length value,
+     * see {@link DataWriterBigEndian#writeStringVar(String)}.
+     *
+     * @return read text
+     * @throws IOException thrown in case of invalid data
+     */
+    public String readStringVar() throws IOException {
+        int textLength = readVarInt();
+        if (textLength < 0) {
+            throw new IOException("Invalid length of text:" + textLength);
+        } else if (textLength == 0) {
+            return "";
+        } else {
+            checkPosition(textLength);
+            if (mStringCache != null) {
+                return mStringCache.get(mBuffer, mPosition - textLength, textLength);
+            }
+            return new String(mBuffer,
+                    mPosition - textLength, textLength, Utils.UTF8);
         }
     }
 
@@ -139,7 +670,7 @@ public class DataReaderBigEndian {
         } else {
             checkPosition(textLength);
             return new String(mBuffer,
-                    mPosition - textLength, textLength, "UTF-8");
+                    mPosition - textLength, textLength, Utils.UTF8);
         }
     }
 
@@ -176,6 +707,12 @@ public class DataReaderBigEndian {
 
     public <E extends Storable> List<E> readListStorable(Class<E> claz)
             throws IOException {
+        // use registered factory if exists
+        Storable.Factory<E> factory = Storable.getFactory(claz);
+        if (factory != null) {
+            return readListStorable(factory);
+        }
+
         // prepare container
         List<E> objs = new ArrayList<>();
 
@@ -189,9 +726,7 @@ public class DataReaderBigEndian {
         for (int i = 0; i < count; i++) {
             //noinspection TryWithIdenticalCatches
             try {
-                E item = claz.newInstance();
-                item.read(this);
-                objs.add(item);
+                objs.add(Storable.read(claz, this));
             } catch (InstantiationException e) {
                 Logger.logE(TAG, "readList(" + claz + ")", e);
             } catch (IllegalAccessException e) {
@@ -201,15 +736,191 @@ public class DataReaderBigEndian {
         return objs;
     }
 
+    /**
+     * Read list of Storable items. Instances are created by factory, without reflection.
+     *
+     * @param factory factory that create instances to read
+     * @param <E>     class type
+     * @return list of loaded items
+     * @throws IOException thrown in case of invalid data format
+     */
+    public <E extends Storable> List<E> readListStorable(Storable.Factory<E> factory)
+            throws IOException {
+        // read size
+        int count = readInt();
+        List<E> objs = new ArrayList<>(Math.max(0, Math.min(count, available())));
+
+        // read items
+        for (int i = 0; i < count; i++) {
+            E item = factory.create();
+            item.read(this);
+            objs.add(item);
+        }
+        return objs;
+    }
+
+    /**
+     * Iterate over list of Storable items. Items are decoded one by one during iteration,
+     * so whole list is never held in memory. Reader cannot be used for other reads until
+     * iteration is finished.
+     *
+     * @param claz class of items
+     * @param <E>  class type
+     * @return iterator over items
+     */
+    public <E extends Storable> Iterator<E> iterateListStorable(Class<E> claz) {
+        return new StorableIterator<>(claz, null, readInt());
+    }
+
+    /**
+     * Iterate over list of Storable items. All items are read into single reused instance,
+     * so it is not possible to keep references to returned items. Suitable for filtering or
+     * forwarding of huge lists.
+     *
+     * @param item instance reused for every item of list
+     * @param <E>  class type
+     * @return iterator over items
+     */
+    public <E extends Storable> Iterator<E> iterateListStorable(E item) {
+        return new StorableIterator<>(null, item, readInt());
+    }
+
+    /**
+     * Iterator that decodes items of Storable list one by one.
+     *
+     * @param <E> class type
+     */
+    private class StorableIterator<E extends Storable> implements Iterator<E> {
+
+        // class of items
+        private final Class<E> mClaz;
+        // reused instance
+        private final E mItem;
+        // number of items remaining to read
+        private int mRemaining;
+
+        private StorableIterator(Class<E> claz, E item, int count) {
+            this.mClaz = claz;
+            this.mItem = item;
+            this.mRemaining = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mRemaining > 0;
+        }
+
+        @Override
+        public E next() {
+            if (mRemaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            mRemaining--;
+
+            // read item
+            try {
+                if (mItem != null) {
+                    mItem.read(DataReaderBigEndian.this);
+                    return mItem;
+                }
+                return Storable.read(mClaz, DataReaderBigEndian.this);
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to read item of list, " +
+                        "remaining:" + mRemaining, e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     // PRIVATE TOOLS
 
     private void checkPosition(int increment) {
+        if (increment < 0 || increment > mReadEnd - mPosition) {
+            prepareData(increment);
+        }
         mPosition += increment;
-        if (mPosition > mBuffer.length) {
+    }
+
+    /**
+     * Make sure, that requested number of bytes is available in buffer. Slow path of
+     * {@link #checkPosition(int)}.
+     *
+     * @param increment number of required bytes
+     */
+    private void prepareData(int increment) {
+        if (increment < 0
+                || getPositionInStream() + increment > mLimit
+                || mSource == null) {
             throw new ArrayIndexOutOfBoundsException("Invalid position for data load. " +
-                    "Current:" + mPosition + ", " +
-                    "length:" + mBuffer.length + ", " +
+                    "Current:" + getPositionInStream() + ", " +
+                    "length:" + (mSource == null ? length() : mLimit) + ", " +
                     "increment:" + increment);
         }
+
+        // move unread data to start of buffer
+        int unread = mEnd - mPosition;
+        System.arraycopy(mBuffer, mPosition, mBuffer, 0, unread);
+        mBase += mPosition - mStart;
+        mStart = 0;
+        mPosition = 0;
+        mEnd = unread;
+
+        // fill buffer from source. Buffer grows only when it is full of received data, so
+        // invalid size read from data cannot allocate more than twice of really existing data
+        while (mEnd < increment) {
+            if (mEnd == mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer,
+                        (int) Math.min(increment, (long) mBuffer.length << 1));
+            }
+            mEnd += readFromSource(mEnd, mBuffer.length - mEnd);
+        }
+        updateReadEnd();
+    }
+
+    /**
+     * Read data from source into buffer.
+     *
+     * @param offset offset in buffer
+     * @param length maximal number of bytes to read
+     * @return number of read bytes
+     */
+    private int readFromSource(int offset, int length) {
+        int read;
+        try {
+            read = mSource.read(mBuffer, offset, length);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read data from source", e);
+        }
+        if (read < 0) {
+            throw new ArrayIndexOutOfBoundsException("Unexpected end of data, " +
+                    "position:" + (mBase + offset));
+        }
+        if (read == 0 && length > 0) {
+            // source does not block, retry would end in infinite loop
+            throw new IllegalStateException("No data returned by source, " +
+                    "position:" + (mBase + offset));
+        }
+        return read;
+    }
+
+    /**
+     * Get current position of cursor in whole stream of data.
+     *
+     * @return position in stream
+     */
+    private long getPositionInStream() {
+        return mBase + mPosition - mStart;
+    }
+
+    /**
+     * Compute index in buffer, until which data may be read without any checks.
+     */
+    private void updateReadEnd() {
+        long limitIndex = mLimit - mBase + mStart;
+        mReadEnd = limitIndex < mEnd ? (int) limitIndex : mEnd;
     }
 }
@@ -2,14 +2,29 @@ package locus.api.utils;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import locus.api.objects.Storable;
 
+/**
+ * Writer of data in big-endian format into growing byte array.
+ * <br><br>
+ * Writer is not thread-safe. For short-time usage, prefer {@link #obtain()} and
+ * {@link #recycle()} that reuse already allocated buffer in current thread.
+ */
 @SuppressWarnings("PointlessBitwiseExpression")
 public class DataWriterBigEndian {
 
+    // max size of buffer that is kept in pool after recycle
+    private static final int POOL_MAX_BUFFER_SIZE = 1024 * 1024;
+
+    // cached writer for every thread
+    private static final ThreadLocal<DataWriterBigEndian> sPool =
+            new ThreadLocal<>();
+
     /**
      * The buffer where data is stored.
      */
@@ -27,6 +42,10 @@ public class DataWriterBigEndian {
      *
      */
     private int mSavedPos;
+    // flag if objects should be written in compact (variable-length) encoding
+    private boolean mCompactEncoding;
+    // flag if styles of geo objects should be skipped
+    private boolean mSkipStyles;
 
     /**
      * Creates a new data array output stream. The buffer capacity is
@@ -51,6 +70,36 @@ public class DataWriterBigEndian {
         reset();
     }
 
+    /**
+     * Obtain writer for current thread. Writer cached for current thread is returned if
+     * available, otherwise new writer is created. Once writer is not needed, call
+     * {@link #recycle()} to return it back.
+     *
+     * @return empty writer
+     */
+    public static DataWriterBigEndian obtain() {
+        DataWriterBigEndian dw = sPool.get();
+        if (dw == null) {
+            return new DataWriterBigEndian();
+        }
+        sPool.set(null);
+        return dw;
+    }
+
+    /**
+     * Return writer obtained by {@link #obtain()} back to pool. Writer, nor any data
+     * obtained by {@link #toByteBuffer()}, should not be used after this call.
+     */
+    public void recycle() {
+        if (mBuf.length > POOL_MAX_BUFFER_SIZE) {
+            return;
+        }
+        reset();
+        mCompactEncoding = false;
+        mSkipStyles = false;
+        sPool.set(this);
+    }
+
     /**
      * Resets the <code>count</code> field of this byte array output
      * stream to zero, so that all currently accumulated output in the
@@ -59,13 +108,54 @@ public class DataWriterBigEndian {
      *
      * @see java.io.ByteArrayInputStream#count
      */
-    public synchronized void reset() {
+    public void reset() {
         mCount = 0;
         mCurrentPos = 0;
         mSavedPos = 0;
     }
 
 
+    /**
+     * Check if objects should be written in compact encoding.
+     *
+     * @return {@code true} if compact encoding is used
+     */
+    public boolean isCompactEncoding() {
+        return mCompactEncoding;
+    }
+
+    /**
+     * Define if objects, that support it, should be written in compact encoding, where
+     * integers and lengths of texts are written as variable-length values. Such objects
+     * are written in newer version, that cannot be read by older versions of this
+     * library, so use it only for data read by same or newer version.
+     *
+     * @param compactEncoding {@code true} to use compact encoding
+     */
+    public void setCompactEncoding(boolean compactEncoding) {
+        this.mCompactEncoding = compactEncoding;
+    }
+
+    /**
+     * Check if styles of geo objects are skipped.
+     *
+     * @return {@code true} if styles are skipped
+     */
+    public boolean isSkipStyles() {
+        return mSkipStyles;
+    }
+
+    /**
+     * Define if styles of geo objects should be skipped, so objects are written as if they
+     * had no styles. Useful for containers, that write styles of their items separately.
+     * Written objects are not modified.
+     *
+     * @param skipStyles {@code true} to skip styles
+     */
+    public void setSkipStyles(boolean skipStyles) {
+        this.mSkipStyles = skipStyles;
+    }
+
     /**
      * Increases the capacity if necessary to ensure that it can hold
      * at least the number of elements specified by the minimum
@@ -129,6 +219,42 @@ public class DataWriterBigEndian {
         mCurrentPos = mSavedPos;
     }
 
+    /**
+     * Get current position of writer.
+     *
+     * @return index where next byte will be written
+     */
+    public int getPosition() {
+        return mCurrentPos;
+    }
+
+    /**
+     * Reserve space for a single integer value, that is not yet known. Value may be written
+     * later by {@link #writeIntAt(int, int)}, so data does not need to be prepared in any
+     * temporary buffer.
+     *
+     * @return position of reserved space
+     */
+    public int reserveInt() {
+        int position = mCurrentPos;
+        writeInt(0);
+        return position;
+    }
+
+    /**
+     * Write integer value on certain position, usually reserved by {@link #reserveInt()}.
+     * Current position of writer is not changed.
+     *
+     * @param position position where to write
+     * @param v        value to write
+     */
+    public void writeIntAt(int position, int v) {
+        storePosition();
+        moveTo(position);
+        writeInt(v);
+        restorePosition();
+    }
+
     public void moveTo(int index) {
         // check index
         if (index < 0 || index > mCount) {
@@ -142,20 +268,18 @@ public class DataWriterBigEndian {
 
     // WRITE FUNCTIONS
 
-    private byte mWriteBuffer[] = new byte[8];
-
     /**
      * Writes the specified byte to this byte array output stream.
      *
      * @param b the byte to be written.
      */
-    public synchronized void write(int b) {
+    public void write(int b) {
         ensureCapacity(mCurrentPos + 1);
         mBuf[mCurrentPos] = (byte) b;
         setNewPositions(1);
     }
 
-    public synchronized void write(byte b[]) {
+    public void write(byte b[]) {
         write(b, 0, b.length);
     }
 
@@ -167,7 +291,7 @@ public class DataWriterBigEndian {
      * @param off the start offset in the data.
      * @param len the number of bytes to write.
      */
-    public synchronized void write(byte b[], int off, int len) {
+    public void write(byte b[], int off, int len) {
         if ((off < 0) || (off > b.length) || (len < 0) ||
                 ((off + len) - b.length > 0)) {
             throw new IndexOutOfBoundsException();
@@ -221,11 +345,12 @@ public class DataWriterBigEndian {
      * @see java.io.FilterOutputStream#out
      */
     public final void writeInt(int v) {
-        mWriteBuffer[0] = (byte) ((v >>> 24) & 0xFF);
-        mWriteBuffer[1] = (byte) ((v >>> 16) & 0xFF);
-        mWriteBuffer[2] = (byte) ((v >>> 8) & 0xFF);
-        mWriteBuffer[3] = (byte) ((v >>> 0) & 0xFF);
-        write(mWriteBuffer, 0, 4);
+        ensureCapacity(mCurrentPos + 4);
+        mBuf[mCurrentPos] = (byte) ((v >>> 24) & 0xFF);
+        mBuf[mCurrentPos + 1] = (byte) ((v >>> 16) & 0xFF);
+        mBuf[mCurrentPos + 2] = (byte) ((v >>> 8) & 0xFF);
+        mBuf[mCurrentPos + 3] = (byte) ((v >>> 0) & 0xFF);
+        setNewPositions(4);
     }
 
     /**
@@ -237,15 +362,16 @@ public class DataWriterBigEndian {
      * @see java.io.FilterOutputStream#out
      */
     public final void writeLong(long v) {
-        mWriteBuffer[0] = (byte) (v >>> 56);
-        mWriteBuffer[1] = (byte) (v >>> 48);
-        mWriteBuffer[2] = (byte) (v >>> 40);
-        mWriteBuffer[3] = (byte) (v >>> 32);
-        mWriteBuffer[4] = (byte) (v >>> 24);
-        mWriteBuffer[5] = (byte) (v >>> 16);
-        mWriteBuffer[6] = (byte) (v >>> 8);
-        mWriteBuffer[7] = (byte) (v >>> 0);
-        write(mWriteBuffer, 0, 8);
+        ensureCapacity(mCurrentPos + 8);
+        mBuf[mCurrentPos] = (byte) (v >>> 56);
+        mBuf[mCurrentPos + 1] = (byte) (v >>> 48);
+        mBuf[mCurrentPos + 2] = (byte) (v >>> 40);
+        mBuf[mCurrentPos + 3] = (byte) (v >>> 32);
+        mBuf[mCurrentPos + 4] = (byte) (v >>> 24);
+        mBuf[mCurrentPos + 5] = (byte) (v >>> 16);
+        mBuf[mCurrentPos + 6] = (byte) (v >>> 8);
+        mBuf[mCurrentPos + 7] = (byte) (v >>> 0);
+        setNewPositions(8);
     }
 
     /**
@@ -280,14 +406,171 @@ public class DataWriterBigEndian {
         writeLong(Double.doubleToLongBits(v));
     }
 
+    /**
+     * Write integer as variable-length value (LEB128). Small positive values take less
+     * space, negative values always take 5 bytes, so use {@link #writeVarIntSigned(int)}
+     * for them.
+     *
+     * @param v value to write
+     */
+    public final void writeVarInt(int v) {
+        ensureCapacity(mCurrentPos + 5);
+        int pos = mCurrentPos;
+        while ((v & ~0x7F) != 0) {
+            mBuf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        mBuf[pos++] = (byte) v;
+        setNewPositions(pos - mCurrentPos);
+    }
+
+    /**
+     * Write signed integer as variable-length value. ZigZag encoding is used, so small
+     * negative values take less space as well.
+     *
+     * @param v value to write
+     */
+    public final void writeVarIntSigned(int v) {
+        writeVarInt((v << 1) ^ (v >> 31));
+    }
+
+    /**
+     * Write long as variable-length value (LEB128).
+     *
+     * @param v value to write
+     */
+    public final void writeVarLong(long v) {
+        ensureCapacity(mCurrentPos + 10);
+        int pos = mCurrentPos;
+        while ((v & ~0x7FL) != 0) {
+            mBuf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        mBuf[pos++] = (byte) v;
+        setNewPositions(pos - mCurrentPos);
+    }
+
+    /**
+     * Write signed long as variable-length value with ZigZag encoding.
+     *
+     * @param v value to write
+     */
+    public final void writeVarLongSigned(long v) {
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    /**
+     * Write text encoded in UTF-8, prefixed by it's length in bytes. Text is encoded
+     * directly into buffer, without any temporary array.
+     *
+     * @param string text to write
+     * @throws IOException thrown in case of invalid data format
+     */
     public final void writeString(String string) throws IOException {
         if (string == null || string.length() == 0) {
             writeInt(0);
-        } else {
-            byte[] bytes = string.getBytes("UTF-8");
-            writeInt(bytes.length);
-            write(bytes, 0, bytes.length);
+            return;
+        }
+
+        // encode text behind space for length
+        int start = mCurrentPos + 4;
+        int bytesLength = encodeString(string, start) - start;
+
+        // write length before text and move behind it
+        writeInt(bytesLength);
+        setNewPositions(bytesLength);
+    }
+
+    /**
+     * Write text encoded in UTF-8, prefixed by it's length in bytes written as
+     * variable-length value (see {@link #writeVarInt(int)}).
+     *
+     * @param string text to write
+     */
+    public final void writeStringVar(String string) {
+        if (string == null || string.length() == 0) {
+            writeVarInt(0);
+            return;
+        }
+
+        // encode text behind space for length in the worst case
+        int prefix = getVarIntSize(string.length() * 3);
+        int start = mCurrentPos + prefix;
+        int bytesLength = encodeString(string, start) - start;
+
+        // write length and move text right behind it, if length is shorter
+        int lengthSize = getVarIntSize(bytesLength);
+        writeVarInt(bytesLength);
+        if (lengthSize < prefix) {
+            System.arraycopy(mBuf, start, mBuf, mCurrentPos, bytesLength);
+        }
+        setNewPositions(bytesLength);
+    }
+
+    /**
+     * Get number of bytes needed for writing of value by {@link #writeVarInt(int)}.
+     */
+    private static int getVarIntSize(int v) {
+        int size = 1;
+        while ((v & ~0x7F) != 0) {
+            size++;
+            v >>>= 7;
+        }
+        return size;
+    }
+
+    /**
+     * Encode text in UTF-8 into buffer at certain position. Current position is not changed.
+     *
+     * @param string text to encode
+     * @param start  position in buffer where to write
+     * @return position behind encoded text
+     */
+    private int encodeString(String string, int start) {
+        // make sure buffer is big enough for the worst case
+        int length = string.length();
+        ensureCapacity(start + length * 3);
+        byte[] buf = mBuf;
+        int pos = start;
+
+        // encode ASCII characters
+        int i = 0;
+        for (; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            buf[pos++] = (byte) c;
         }
+
+        // encode rest of text
+        for (; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                int cp = Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(string.charAt(i + 1)) ?
+                        Character.toCodePoint(c, string.charAt(++i)) : -1;
+                if (cp < 0) {
+                    // malformed text, replaced same way as in 'String.getBytes'
+                    buf[pos++] = (byte) '?';
+                } else {
+                    buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                }
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
     }
 
     @Deprecated
@@ -295,7 +578,7 @@ public class DataWriterBigEndian {
         if (string == null || string.length() == 0) {
             writeShort(0);
         } else {
-            byte[] bytes = string.getBytes("UTF-8");
+            byte[] bytes = string.getBytes(Utils.UTF8);
             writeShort(bytes.length);
             write(bytes, 0, bytes.length);
         }
@@ -345,6 +628,45 @@ public class DataWriterBigEndian {
         }
     }
 
+    /**
+     * Write items provided by iterator. Count of items is not known before, so it is
+     * written after all items are stored.
+     *
+     * @param objs iterator over items
+     * @return number of written items
+     * @throws IOException thrown in case of invalid data format
+     */
+    public int writeListStorable(Iterator<? extends Storable> objs) throws IOException {
+        int listPos = startList();
+        int count = 0;
+        while (objs.hasNext()) {
+            objs.next().write(this);
+            count++;
+        }
+        finishList(listPos, count);
+        return count;
+    }
+
+    /**
+     * Start writing of list, where number of items is not known before. Items itself may
+     * be written directly after this call.
+     *
+     * @return position of list in stream, that has to be passed to {@link #finishList(int, int)}
+     */
+    public int startList() {
+        return reserveInt();
+    }
+
+    /**
+     * Finish writing of list started by {@link #startList()}.
+     *
+     * @param listPos position returned by {@link #startList()}
+     * @param count   number of written items
+     */
+    public void finishList(int listPos, int count) {
+        writeIntAt(listPos, count);
+    }
+
     // VARIOUS TOOLS
 
     /**
@@ -355,7 +677,7 @@ public class DataWriterBigEndian {
      * @param out the output stream to which to write the data.
      * @throws IOException if an I/O error occurs.
      */
-    public synchronized void writeTo(OutputStream out) throws IOException {
+    public void writeTo(OutputStream out) throws IOException {
         out.write(mBuf, 0, mCount);
     }
 
@@ -367,10 +689,20 @@ public class DataWriterBigEndian {
      * @return the current contents of this output stream, as a byte array.
      * @see java.io.ByteArrayOutputStream#size()
      */
-    public synchronized byte toByteArray()[] {
+    public byte toByteArray()[] {
         return Arrays.copyOf(mBuf, mCount);
     }
 
+    /**
+     * Get read-only view on current content of this output stream. Data are not copied,
+     * so view is valid only until writer is modified, reset or recycled.
+     *
+     * @return read-only buffer with current content
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(mBuf, 0, mCount).asReadOnlyBuffer();
+    }
+
     /**
      * Returns the current size of the buffer.
      *
@@ -378,7 +710,7 @@ public class DataWriterBigEndian {
      * of valid bytes in this output stream.
      * @see java.io.ByteArrayOutputStream#count
      */
-    public synchronized int size() {
+    public int size() {
         return mCount;
     }
 }
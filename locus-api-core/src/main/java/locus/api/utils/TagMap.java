@@ -0,0 +1,313 @@
+/*
+ * Copyright 2012, Asamm Software, s. r. o.
+ *
+ * This file is part of LocusAPI.
+ *
+ * LocusAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the Lesser GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * LocusAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Lesser GNU General Public License for more details.
+ *
+ * You should have received a copy of the Lesser GNU General Public
+ * License along with LocusAPI. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html/>.
+ */
+
+package locus.api.utils;
+
+/**
+ * Lightweight map of temporary attributes (tags) attached to objects.
+ * <br><br>
+ * Up to {@link #INLINE_CAPACITY} entries are stored in small array and searched linearly,
+ * bigger maps use open addressing with linear probing. Keys may be any objects with valid
+ * {@code equals/hashCode}, for fast access without hashing of texts use {@link Key}.
+ * <br><br>
+ * Map is not synchronized and does not accept 'null' keys or values.
+ */
+public final class TagMap {
+
+    // maximal number of entries stored without hashing
+    private static final int INLINE_CAPACITY = 4;
+
+    // keys of entries
+    private Object[] mKeys;
+    // values of entries
+    private Object[] mValues;
+    // number of entries
+    private int mSize;
+
+    /**
+     * Create new empty map.
+     */
+    public TagMap() {
+        mKeys = new Object[INLINE_CAPACITY];
+        mValues = new Object[INLINE_CAPACITY];
+        mSize = 0;
+    }
+
+    /**
+     * Typed key of attribute. Keys are compared by identity, so they are expected to be
+     * created once and stored as constants.
+     *
+     * @param <T> type of value
+     */
+    public static final class Key<T> {
+
+        // counter used for generating of hashes
+        private static int sCounter = 0;
+
+        // name of key, for debugging
+        private final String mName;
+        // pre-computed hash
+        private final int mHash;
+
+        /**
+         * Create new key.
+         *
+         * @param name name of key, used only for debugging
+         */
+        public Key(String name) {
+            this.mName = name;
+            synchronized (Key.class) {
+                this.mHash = (++sCounter) * 0x9E3779B9;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key [" + mName + "]";
+        }
+    }
+
+    //*************************************************
+    // ACCESS
+    //*************************************************
+
+    /**
+     * Get number of entries.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Get value defined by key.
+     *
+     * @param key key of value
+     * @return value or 'null' if not defined
+     */
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? mValues[index] : null;
+    }
+
+    /**
+     * Get value defined by typed key.
+     *
+     * @param key key of value
+     * @param <T> type of value
+     * @return value or 'null' if not defined
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key) {
+        return (T) get((Object) key);
+    }
+
+    /**
+     * Set value defined by key.
+     *
+     * @param key   key of value
+     * @param value new value
+     * @return previous value or 'null'
+     */
+    public Object put(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value must not be null");
+        }
+
+        // replace existing value
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object old = mValues[index];
+            mValues[index] = value;
+            return old;
+        }
+
+        // add new value
+        if (isInline()) {
+            if (mSize < INLINE_CAPACITY) {
+                mKeys[mSize] = key;
+                mValues[mSize] = value;
+                mSize++;
+                return null;
+            }
+            rehash(INLINE_CAPACITY * 4);
+        } else if ((mSize + 1) * 3 > mKeys.length * 2) {
+            rehash(mKeys.length * 2);
+        }
+        insertHashed(key, value);
+        mSize++;
+        return null;
+    }
+
+    /**
+     * Set value defined by typed key.
+     *
+     * @param key   key of value
+     * @param value new value
+     * @param <T>   type of value
+     * @return previous value or 'null'
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T put(Key<T> key, T value) {
+        return (T) put((Object) key, value);
+    }
+
+    /**
+     * Remove value defined by key.
+     *
+     * @param key key of value
+     * @return removed value or 'null'
+     */
+    public Object remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object old = mValues[index];
+        mSize--;
+        if (isInline()) {
+            mKeys[index] = mKeys[mSize];
+            mValues[index] = mValues[mSize];
+            mKeys[mSize] = null;
+            mValues[mSize] = null;
+        } else {
+            removeHashed(index);
+        }
+        return old;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        mKeys = new Object[INLINE_CAPACITY];
+        mValues = new Object[INLINE_CAPACITY];
+        mSize = 0;
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private boolean isInline() {
+        return mKeys.length == INLINE_CAPACITY;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Find index of key.
+     *
+     * @return index of key in arrays or '-1' if not found
+     */
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        Object[] keys = mKeys;
+        if (isInline()) {
+            for (int i = 0; i < mSize; i++) {
+                Object k = keys[i];
+                if (k == key || k.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == null) {
+                return -1;
+            }
+            if (k == key || k.equals(key)) {
+                return i;
+            }
+        }
+    }
+
+    private void insertHashed(Object key, Object value) {
+        int mask = mKeys.length - 1;
+        int i = hash(key) & mask;
+        while (mKeys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        mKeys[i] = key;
+        mValues[i] = value;
+    }
+
+    /**
+     * Remove entry from hash table and move following entries of same cluster back,
+     * so no deleted markers are needed.
+     */
+    private void removeHashed(int index) {
+        Object[] keys = mKeys;
+        Object[] values = mValues;
+        int mask = keys.length - 1;
+        int free = index;
+        for (int i = (index + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            // move entry if its home slot is not in range (free, i]
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        keys[free] = null;
+        values[free] = null;
+
+        // return back to inline storage
+        if (mSize <= INLINE_CAPACITY / 2) {
+            Object[] newKeys = new Object[INLINE_CAPACITY];
+            Object[] newValues = new Object[INLINE_CAPACITY];
+            for (int i = 0, n = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    newKeys[n] = keys[i];
+                    newValues[n] = values[i];
+                    n++;
+                }
+            }
+            mKeys = newKeys;
+            mValues = newValues;
+        }
+    }
+
+    private void rehash(int capacity) {
+        Object[] keys = mKeys;
+        Object[] values = mValues;
+        mKeys = new Object[capacity];
+        mValues = new Object[capacity];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                insertHashed(keys[i], values[i]);
+            }
+        }
+    }
+}
@@ -22,12 +22,18 @@ package locus.api.utils;
 
 import java.io.Closeable;
 import java.lang.reflect.Field;
+import java.nio.charset.Charset;
 
 public class Utils {
 
     // tag for logger
     private static final String TAG = "Utils";
 
+    /**
+     * Charset used for all texts. Resolved only once, to avoid lookup by name.
+     */
+    public static final Charset UTF8 = Charset.forName("UTF-8");
+
     //*************************************************
     // PARSE SECTION
     //*************************************************
@@ -118,7 +124,7 @@ public class Utils {
 
     public static byte[] doStringToBytes(String text) {
         try {
-            return text.getBytes("UTF-8");
+            return text.getBytes(UTF8);
         } catch (Exception e) {
             Logger.logE(TAG, "doStringToBytes(" + text + ")", e);
             return new byte[0];
@@ -127,7 +133,7 @@ public class Utils {
 
     public static String doBytesToString(byte[] data) {
         try {
-            return new String(data, "UTF-8");
+            return new String(data, UTF8);
         } catch (Exception e) {
             Logger.logE(TAG, "doBytesToString(" + data + ")", e);
             return "";
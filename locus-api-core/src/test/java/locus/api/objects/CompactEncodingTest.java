@@ -0,0 +1,138 @@
+package locus.api.objects;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import locus.api.objects.extra.GeoDataExtra;
+import locus.api.objects.extra.Location;
+import locus.api.objects.extra.Point;
+import locus.api.objects.geocaching.GeocachingLog;
+import locus.api.utils.DataReaderBigEndian;
+import locus.api.utils.DataWriterBigEndian;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compatibility of legacy encoding with version 0.3.2 of library and round-trips over
+ * compact encoding, for all objects that support it.
+ */
+public class CompactEncodingTest {
+
+    @Test
+    public void location() throws Exception {
+        assertCompatible("location.bin", Location.class, Samples.createLocation(1));
+    }
+
+    @Test
+    public void point() throws Exception {
+        assertCompatible("point.bin", Point.class, Samples.createPoint());
+    }
+
+    @Test
+    public void gcLog() throws Exception {
+        assertCompatible("gc_log.bin", GeocachingLog.class, Samples.createGcLog(1));
+    }
+
+    @Test
+    public void versions() throws IOException {
+        // compact layouts are marked by flag, legacy versions are kept
+        Storable[] objects = new Storable[]{
+                Samples.createLocation(1), new GeoDataExtra(), Samples.createGcLog(1)};
+        int[] legacy = new int[]{2, 0, 2};
+        for (int i = 0; i < objects.length; i++) {
+            assertEquals(legacy[i], Samples.getVersion(objects[i].getAsBytes()));
+            assertEquals(Storable.VERSION_FLAG_COMPACT,
+                    Samples.getVersion(Samples.getAsBytesCompact(objects[i])));
+        }
+    }
+
+    @Test
+    public void locationSimple() throws IOException {
+        // location without optional values
+        Location loc = Samples.createLocationSimple(3);
+        Location read = new Location();
+        read.read(Samples.getAsBytesCompact(loc));
+        assertFalse(read.hasAltitude());
+        assertFalse(read.hasSensorHeartRate());
+        assertArrayEquals(loc.getAsBytes(), read.getAsBytes());
+    }
+
+    @Test
+    public void readListCompact() throws IOException {
+        List<Location> locs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            locs.add(Samples.createLocation(i));
+        }
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.setCompactEncoding(true);
+        dw.writeListStorable(locs);
+
+        List<Location> read = new DataReaderBigEndian(dw.toByteArray())
+                .readListStorable(Location.class);
+        assertEquals(locs.size(), read.size());
+        for (int i = 0; i < locs.size(); i++) {
+            assertArrayEquals(locs.get(i).getAsBytes(), read.get(i).getAsBytes());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readGcLogInvalidImages() throws IOException {
+        new GeocachingLog().read(createGcLogCompact(-1));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void readGcLogHugeImages() throws IOException {
+        // count is not used to allocate list, reading fails on end of data
+        new GeocachingLog().read(createGcLogCompact(0x7FFFFFF0));
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    /**
+     * Check, that object is read from and written to data of older version without change,
+     * and that compact encoding keeps all values.
+     */
+    private static <E extends Storable> void assertCompatible(String baseline, Class<E> claz,
+            E sample) throws Exception {
+        byte[] legacy = Samples.loadBaseline(baseline);
+        assertArrayEquals(legacy, sample.getAsBytes());
+        E read = Storable.read(claz, new DataReaderBigEndian(legacy));
+        assertArrayEquals(legacy, read.getAsBytes());
+
+        // legacy -> compact -> legacy
+        byte[] compact = Samples.getAsBytesCompact(read);
+        assertTrue(compact.length < legacy.length);
+        E readCompact = Storable.read(claz, new DataReaderBigEndian(compact));
+        assertArrayEquals(legacy, readCompact.getAsBytes());
+        assertArrayEquals(compact, Samples.getAsBytesCompact(readCompact));
+    }
+
+    /**
+     * Create compact log with certain number of images and no image data.
+     */
+    private static byte[] createGcLogCompact(int images) throws IOException {
+        DataWriterBigEndian body = new DataWriterBigEndian();
+        body.writeVarLongSigned(1L);
+        body.writeVarIntSigned(GeocachingLog.CACHE_LOG_TYPE_FOUND);
+        body.writeVarLongSigned(0L);
+        body.writeStringVar("finder");
+        body.writeVarLongSigned(0L);
+        body.writeVarIntSigned(0);
+        body.writeStringVar("text");
+        body.writeVarInt(images);
+
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeInt(Storable.VERSION_FLAG_COMPACT);
+        dw.writeInt(body.size());
+        dw.write(body.toByteArray());
+        return dw.toByteArray();
+    }
+}
@@ -0,0 +1,241 @@
+package locus.api.objects;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import locus.api.objects.extra.GeoDataExtra;
+import locus.api.objects.extra.GeoDataStyle;
+import locus.api.objects.extra.Location;
+import locus.api.objects.extra.Point;
+import locus.api.objects.extra.Track;
+import locus.api.objects.extra.TrackStats;
+import locus.api.objects.geocaching.GeocachingData;
+import locus.api.objects.geocaching.GeocachingImage;
+import locus.api.objects.geocaching.GeocachingLog;
+import locus.api.utils.DataWriterBigEndian;
+
+/**
+ * Sample objects used by tests. Objects are created only over API, that exists also in
+ * version 0.3.2 of library, so same samples were used for generating of binary data written
+ * by this old version (see 'baseline' resources).
+ */
+public final class Samples {
+
+    private Samples() {
+    }
+
+    /**
+     * Create location with all optional values.
+     *
+     * @param index index used for generating of values
+     * @return new location
+     */
+    public static Location createLocation(int index) {
+        Location loc = new Location(50.0 + index * 0.0001, 14.0 + index * 0.00015);
+        loc.setProvider(index % 2 == 0 ? "gps" : "network");
+        loc.setTime(1500000000000L + index * 1000L);
+        loc.setAltitude(250.5 + index);
+        loc.setSpeed(1.5f + index);
+        loc.setBearing(90.0f);
+        loc.setAccuracy(4.0f);
+        loc.setSensorHeartRate(120 + index);
+        loc.setSensorCadence(80);
+        loc.setSensorSpeed(2.5f);
+        loc.setSensorPower(150.0f + index);
+        loc.setSensorStrides(1000 + index * 2);
+        loc.setSensorTemperature(21.5f);
+        return loc;
+    }
+
+    /**
+     * Create location with only basic values.
+     *
+     * @param index index used for generating of values
+     * @return new location
+     */
+    public static Location createLocationSimple(int index) {
+        Location loc = new Location(49.0 - index * 0.0002, 16.0 + index * 0.0001);
+        loc.setTime(1500000000000L + index * 5000L);
+        return loc;
+    }
+
+    /**
+     * Create point with extra data, styles and geocaching data.
+     *
+     * @return new point
+     */
+    public static Point createPoint() {
+        Point pt = new Point("Sample point", createLocation(1));
+        pt.setId(12345L);
+        pt.setTimeCreated(1500000001000L);
+        pt.setParameterDescription("Description of point");
+        pt.addParameter(GeoDataExtra.PAR_KML_TRIP_ID, "trip");
+        pt.setParameterSource(GeoDataExtra.SOURCE_MUNZEE);
+        pt.addUrl("Web", "https://www.locusmap.eu");
+        pt.addPhone("123456789");
+        pt.addAttachmentPhoto("/sdcard/photo.jpg");
+        pt.styleNormal = new GeoDataStyle("normal");
+        pt.styleNormal.setIconStyle("http://icon.png", 1.5f);
+        pt.styleHighlight = new GeoDataStyle("highlight");
+        pt.styleHighlight.setLineStyle(0xFF0000FF, 3.0f);
+        pt.gcData = createGcData();
+        return pt;
+    }
+
+    /**
+     * Create geocaching data with logs.
+     *
+     * @return new geocaching data
+     */
+    public static GeocachingData createGcData() {
+        GeocachingData gc = new GeocachingData();
+        gc.setCacheID("GC12345");
+        gc.setName("Sample cache");
+        gc.setOwner("owner");
+        gc.setPlacedBy("placed by");
+        gc.setType(GeocachingData.CACHE_TYPE_MULTI);
+        gc.setContainer(GeocachingData.CACHE_SIZE_SMALL);
+        gc.setDifficulty(2.5f);
+        gc.setTerrain(1.5f);
+        gc.setDateHidden(1400000000000L);
+        gc.setDatePublished(1400000500000L);
+        gc.setDateUpdated(1500000000000L);
+        gc.setEncodedHints("under the stone");
+        gc.setFavoritePoints(12);
+        for (int i = 0; i < 3; i++) {
+            gc.logs.add(createGcLog(i));
+        }
+        return gc;
+    }
+
+    /**
+     * Create geocaching log.
+     *
+     * @param index index used for generating of values
+     * @return new log
+     */
+    public static GeocachingLog createGcLog(int index) {
+        GeocachingLog log = new GeocachingLog();
+        log.setId(1000L + index);
+        log.setType(GeocachingLog.CACHE_LOG_TYPE_FOUND);
+        log.setDate(1450000000000L + index * 86400000L);
+        log.setFinder("finder " + index);
+        log.setFindersId(500L + index);
+        log.setFindersFound(100 + index);
+        log.setLogText("Log text number " + index + ", TFTC");
+        log.setCooLat(50.1 + index);
+        log.setCooLon(14.1);
+        GeocachingImage img = new GeocachingImage();
+        img.setName("image " + index);
+        img.setUrl("https://img.example.com/" + index + ".jpg");
+        log.addImage(img);
+        return log;
+    }
+
+    /**
+     * Create track with points, breaks, waypoints and statistics.
+     *
+     * @return new track
+     */
+    @SuppressWarnings("deprecation")
+    public static Track createTrack() {
+        Track track = new Track();
+        track.setId(777L);
+        track.setName("Sample track");
+        track.setTimeCreated(1500000002000L);
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            points.add(i % 3 == 0 ? createLocationSimple(i) : createLocation(i));
+        }
+        track.setPoints(points);
+        track.getBreaks().add(3);
+        track.getBreaks().add(7);
+        Point wpt = new Point("Waypoint", createLocationSimple(2));
+        wpt.setTimeCreated(1500000003000L);
+        track.getWaypoints().add(wpt);
+        track.setParameterDescription("Description of track");
+        track.styleNormal = new GeoDataStyle("track");
+        track.styleNormal.setLineStyle(0xFF00FF00, 5.0f);
+        track.setActivityType(3);
+        TrackStats stats = new TrackStats();
+        stats.setNumOfPoints(12);
+        stats.setStartTime(1500000000000L);
+        stats.setStopTime(1500000011000L);
+        stats.setTotalLength(150.0f);
+        stats.setTotalTime(11000L);
+        track.setStats(stats);
+        return track;
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    /**
+     * Load data written by version 0.3.2 of library.
+     *
+     * @param name name of file in 'baseline' resources
+     * @return loaded data
+     * @throws IOException thrown in case of missing resource
+     */
+    public static byte[] loadBaseline(String name) throws IOException {
+        InputStream input = Samples.class.getResourceAsStream("/baseline/" + name);
+        if (input == null) {
+            throw new IOException("Missing resource:" + name);
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Serialize object in compact encoding.
+     *
+     * @param obj object to write
+     * @return written data
+     * @throws IOException thrown in case of invalid data
+     */
+    public static byte[] getAsBytesCompact(Storable obj) throws IOException {
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.setCompactEncoding(true);
+        obj.write(dw);
+        return dw.toByteArray();
+    }
+
+    /**
+     * Get version of serialized object.
+     *
+     * @param data serialized object
+     * @return version of object
+     */
+    public static int getVersion(byte[] data) {
+        return readInt(data, 0);
+    }
+
+    /**
+     * Get body of serialized object (data without version and size).
+     *
+     * @param data serialized object
+     * @return body of object
+     */
+    public static byte[] getBody(byte[] data) {
+        return Arrays.copyOfRange(data, 8, 8 + readInt(data, 4));
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,167 @@
+package locus.api.objects.extra;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import locus.api.utils.DataReaderBigEndian;
+import locus.api.utils.DataWriterBigEndian;
+import locus.api.utils.Utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PackedParametersTest {
+
+    @Test
+    public void putGetRemove() {
+        PackedParameters params = new PackedParameters();
+        params.putText(30, "thirty");
+        params.putText(10, "ten");
+        params.putText(20, "twenty");
+        params.put(5, new byte[]{7});
+        assertEquals(4, params.size());
+        assertEquals("ten", params.getText(10));
+        assertEquals("twenty", params.getText(20));
+        assertEquals("thirty", params.getText(30));
+        assertEquals((byte) 7, params.getByte(5, (byte) 0));
+        assertEquals((byte) 1, params.getByte(10, (byte) 1));
+
+        // replace and remove
+        params.putText(20, "new twenty");
+        params.remove(10);
+        params.remove(11);
+        assertEquals(3, params.size());
+        assertFalse(params.contains(10));
+        assertNull(params.getText(10));
+        assertEquals("new twenty", params.getText(20));
+        assertArrayEquals(Utils.doStringToBytes("thirty"), params.getBytes(30));
+
+        params.clear();
+        assertEquals(0, params.size());
+        assertNull(params.getText(30));
+    }
+
+    @Test
+    public void getLong() {
+        PackedParameters params = new PackedParameters();
+        params.putText(1, "-123");
+        params.putText(2, "+5");
+        params.putText(3, "12a");
+        params.putText(4, "");
+        params.putText(5, "1234567890123456789");
+        params.putText(6, "99999999999999999999");
+        assertEquals(-123L, params.getLong(1, 0L));
+        assertEquals(5L, params.getLong(2, 0L));
+        assertEquals(-1L, params.getLong(3, -1L));
+        assertEquals(-1L, params.getLong(4, -1L));
+        assertEquals(1234567890123456789L, params.getLong(5, 0L));
+        assertEquals(-1L, params.getLong(6, -1L));
+        assertEquals(-1L, params.getLong(7, -1L));
+    }
+
+    @Test
+    public void getParameterInt() {
+        GeoDataExtra extra = new GeoDataExtra();
+        extra.addParameter(GeoDataExtra.PAR_AREA_SIZE, "42");
+        extra.addParameter(GeoDataExtra.PAR_KML_TRIP_ID, "3000000000");
+        assertEquals(42, extra.getParameterInt(GeoDataExtra.PAR_AREA_SIZE, -1));
+        assertEquals(-1, extra.getParameterInt(GeoDataExtra.PAR_KML_TRIP_ID, -1));
+        assertEquals(-1, extra.getParameterInt(GeoDataExtra.PAR_DESCRIPTION, -1));
+    }
+
+    @Test
+    public void compaction() throws IOException {
+        PackedParameters params = new PackedParameters();
+        for (int i = 0; i < 50; i++) {
+            params.putText(i, "value " + i);
+        }
+
+        // many replacements reclaim space of old values, offsets of kept values stay valid
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 50; i += 2) {
+                params.putText(i, "value " + i + " in round " + round);
+            }
+            params.remove(round % 50 | 1);
+            params.putText(round % 50 | 1, "odd " + round);
+        }
+        PackedParameters expected = new PackedParameters();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(params.contains(i));
+            expected.putText(i, params.getText(i));
+        }
+        assertEquals("value 10 in round 99", params.getText(10));
+        assertEquals("odd 99", params.getText(49));
+        assertArrayEquals(getAsBytes(expected, true), getAsBytes(params, true));
+    }
+
+    @Test
+    public void readWrite() throws IOException {
+        PackedParameters params = new PackedParameters();
+        params.putText(100, "a");
+        params.putText(3, "b");
+        params.put(50, new byte[0]);
+        for (boolean compact : new boolean[]{false, true}) {
+            byte[] data = getAsBytes(params, compact);
+            PackedParameters read = new PackedParameters();
+            read.read(new DataReaderBigEndian(data), compact);
+            assertEquals(3, read.size());
+            assertEquals("a", read.getText(100));
+            assertEquals("b", read.getText(3));
+            assertEquals(0, read.getBytes(50).length);
+            assertArrayEquals(data, getAsBytes(read, compact));
+        }
+    }
+
+    @Test
+    public void readUnsorted() throws IOException {
+        // stored keys out of order and duplicated keys are accepted
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeInt(3);
+        writeEntry(dw, 20, "x");
+        writeEntry(dw, 10, "y");
+        writeEntry(dw, 20, "z");
+        PackedParameters read = new PackedParameters();
+        read.read(new DataReaderBigEndian(dw.toByteArray()), false);
+        assertEquals(2, read.size());
+        assertEquals("y", read.getText(10));
+        assertEquals("z", read.getText(20));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void readInvalidCount() throws IOException {
+        // huge count is not used to allocate arrays, reading fails on end of data
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeInt(0x7FFFFFF0);
+        writeEntry(dw, 1, "a");
+        new PackedParameters().read(new DataReaderBigEndian(dw.toByteArray()), false);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void readInvalidCountCompact() throws IOException {
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeVarInt(0x7FFFFFF0);
+        new PackedParameters().read(new DataReaderBigEndian(dw.toByteArray()), true);
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private static byte[] getAsBytes(PackedParameters params, boolean compact) {
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        params.write(dw, compact);
+        return dw.toByteArray();
+    }
+
+    private static void writeEntry(DataWriterBigEndian dw, int key, String value)
+            throws IOException {
+        byte[] data = Utils.doStringToBytes(value);
+        dw.writeInt(key);
+        dw.writeInt(data.length);
+        dw.write(data);
+    }
+}
@@ -0,0 +1,128 @@
+package locus.api.objects.extra;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import locus.api.objects.GeoData;
+import locus.api.objects.Samples;
+import locus.api.utils.DataReaderBigEndian;
+import locus.api.utils.DataWriterBigEndian;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PointTest {
+
+    @Test
+    public void rewriteHeaderOnly() throws IOException {
+        byte[] data = Samples.createPoint().getAsBytes();
+
+        // skipped sections are written back unchanged
+        Point pt = readHeader(data);
+        assertFalse(pt.isDecodedFully());
+        assertArrayEquals(data, pt.getAsBytes());
+    }
+
+    @Test
+    public void modifyHeaderOnly() throws IOException {
+        byte[] data = Samples.createPoint().getAsBytes();
+
+        // modification of skipped section keeps rest of its data
+        Point pt = readHeader(data);
+        pt.addParameter(GeoDataExtra.PAR_AREA_SIZE, "10");
+        pt.styleHighlight = new GeoDataStyle("replaced");
+
+        Point read = new Point();
+        read.read(pt.getAsBytes());
+        assertEquals("10", read.getParameter(GeoDataExtra.PAR_AREA_SIZE));
+        assertEquals("trip", read.getParameter(GeoDataExtra.PAR_KML_TRIP_ID));
+        assertEquals("Description of point", read.getParameterDescription());
+        assertEquals("normal", read.getStyleNormal().getName());
+        assertEquals("replaced", read.getStyleHighlight().getName());
+        assertEquals(3, read.getGcData().logs.size());
+    }
+
+    @Test
+    public void extraHeaderOnly() throws IOException {
+        Point pt = Samples.createPoint();
+        pt.setExtraCallback("Button", "com.example", "com.example.Main", "data", "value");
+        pt.setExtraOnDisplay("com.example", "com.example.Main", "data", "value");
+
+        // extra data are decoded on first access
+        Point read = readHeader(pt.getAsBytes());
+        assertFalse(read.isDecodedFully());
+        assertEquals(pt.getExtraCallback(), read.getExtraCallback());
+        assertEquals(pt.getExtraOnDisplay(), read.getExtraOnDisplay());
+        assertTrue(read.getExtraCallback().contains("com.example.Main"));
+    }
+
+    @Test
+    public void writeSkipStyles() throws IOException {
+        Point pt = Samples.createPoint();
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.setSkipStyles(true);
+        pt.write(dw);
+        assertTrue(dw.isSkipStyles());
+
+        // writer does not modify point
+        assertEquals("normal", pt.getStyleNormal().getName());
+        Point read = new Point();
+        read.read(dw.toByteArray());
+        assertNull(read.getStyleNormal());
+        assertNull(read.getStyleHighlight());
+        assertEquals("trip", read.getParameter(GeoDataExtra.PAR_KML_TRIP_ID));
+    }
+
+    @Test
+    public void readSharedStyles() throws IOException {
+        byte[] data = Samples.createPoint().getAsBytes();
+        GeoDataStyle.Cache cache = new GeoDataStyle.Cache();
+        Point pt1 = readWithCache(data, cache);
+        Point pt2 = readWithCache(data, cache);
+        assertSame(pt1.getStyleNormal(), pt2.getStyleNormal());
+        assertTrue(pt1.getStyleNormal().isShared());
+        assertEquals(new GeoDataStyle.RawKey(pt1.getStyleNormal()),
+                new GeoDataStyle.RawKey(Samples.createPoint().getStyleNormal()));
+
+        // editable style is private copy
+        GeoDataStyle style = pt1.getStyleNormalEditable();
+        assertNotSame(style, pt2.getStyleNormal());
+        assertFalse(style.isShared());
+        style.setIconStyle("http://icon2.png", 1.0f);
+        assertEquals("http://icon.png", pt2.getStyleNormal().getIconStyleIconUrl());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void modifySharedStyle() throws IOException {
+        byte[] data = Samples.createPoint().getAsBytes();
+        Point pt = readWithCache(data, new GeoDataStyle.Cache());
+        pt.getStyleNormal().setLineStyle(0xFF00FF00, 2.0f);
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    static Point readHeader(byte[] data) throws IOException {
+        DataReaderBigEndian dr = new DataReaderBigEndian(data);
+        dr.setDecodeMask(GeoData.DECODE_HEADER);
+        Point pt = new Point();
+        pt.read(dr);
+        return pt;
+    }
+
+    private static Point readWithCache(byte[] data, GeoDataStyle.Cache cache)
+            throws IOException {
+        DataReaderBigEndian dr = new DataReaderBigEndian(data);
+        dr.setStyleCache(cache);
+        Point pt = new Point();
+        pt.read(dr);
+        return pt;
+    }
+}
@@ -0,0 +1,116 @@
+package locus.api.objects.extra;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import locus.api.objects.Samples;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrackPointsTest {
+
+    @Test
+    public void storeValues() {
+        List<Location> locs = createLocations(20);
+        TrackPoints points = new TrackPoints(locs);
+        assertEquals(locs.size(), points.size());
+        for (int i = 0; i < locs.size(); i++) {
+            assertLocation(locs.get(i), points.get(i));
+            assertEquals(locs.get(i).getLatitude(), points.getLatitude(i), 0.0);
+            assertEquals(locs.get(i).getTime(), points.getTime(i));
+            assertEquals(locs.get(i).hasAltitude(), points.hasAltitude(i));
+        }
+    }
+
+    @Test
+    public void modify() {
+        List<Location> locs = createLocations(10);
+        TrackPoints points = new TrackPoints(locs);
+
+        // same operations on both lists
+        Location added = Samples.createLocation(100);
+        locs.add(3, added);
+        points.add(3, added);
+        locs.remove(7);
+        points.remove(7);
+        Location simple = Samples.createLocationSimple(50);
+        assertLocation(locs.set(0, simple), points.set(0, simple));
+        locs.add(Samples.createLocation(101));
+        points.add(Samples.createLocation(101));
+
+        assertEquals(locs.size(), points.size());
+        for (int i = 0; i < locs.size(); i++) {
+            assertLocation(locs.get(i), points.get(i));
+        }
+
+        points.clear();
+        assertEquals(0, points.size());
+    }
+
+    @Test
+    public void getDetached() {
+        TrackPoints points = new TrackPoints(createLocations(5));
+
+        // returned object is copy of values
+        Location loc = points.get(2);
+        assertNotSame(loc, points.get(2));
+        loc.setAltitude(1000.0);
+        assertFalse(points.get(2).getAltitude() == 1000.0);
+
+        // reused object is refilled completely, including removal of optional values
+        Location reused = points.get(1, new Location());
+        assertTrue(reused.hasSensorHeartRate());
+        assertSame(reused, points.get(0, reused));
+        assertFalse(reused.hasSensorHeartRate());
+        assertLocation(Samples.createLocationSimple(0), reused);
+    }
+
+    @Test
+    public void columns() {
+        TrackPoints points = new TrackPoints(createLocations(9));
+        double[] lats = points.getLatitudes();
+        double[] alts = points.getAltitudes();
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(points.get(i).getLatitude(), lats[i], 0.0);
+            if (points.hasAltitude(i)) {
+                assertEquals(points.get(i).getAltitude(), alts[i], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void trackStorage() {
+        Track track = Samples.createTrack();
+        byte[] data = track.getAsBytes();
+        assertFalse(track.isPointsCompact());
+        track.setPointsCompact(true);
+        assertTrue(track.isPointsCompact());
+        assertArrayEquals(data, track.getAsBytes());
+        track.setPointsCompact(false);
+        assertFalse(track.isPointsCompact());
+        assertArrayEquals(data, track.getAsBytes());
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private static List<Location> createLocations(int count) {
+        List<Location> locs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            locs.add(i % 3 == 0 ? Samples.createLocationSimple(i) : Samples.createLocation(i));
+        }
+        return locs;
+    }
+
+    private static void assertLocation(Location expected, Location loc) {
+        assertArrayEquals(expected.getAsBytes(), loc.getAsBytes());
+    }
+}
@@ -0,0 +1,208 @@
+package locus.api.objects.extra;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import locus.api.objects.utils.LocationCompute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrackStatsBuilderTest {
+
+    // distance between points of test tracks, ~11 metres
+    private static final double STEP_LAT = 0.0001;
+
+    @Test
+    public void lengthAndTime() {
+        TrackStatsBuilder builder = new TrackStatsBuilder();
+        for (int i = 0; i < 11; i++) {
+            builder.addPoint(50.0 + i * STEP_LAT, 14.0, 1000000L + i * 2000L,
+                    false, 0.0, -1.0f, 0, 0);
+        }
+        TrackStats stats = builder.build();
+        double length = LocationCompute.computeDistanceFast(50.0, 14.0, 50.0 + 10 * STEP_LAT, 14.0);
+        assertEquals(11, stats.getNumOfPoints());
+        assertEquals(length, stats.getTotalLength(), 0.01);
+        assertEquals(length, stats.getTotalLengthMove(), 0.01);
+        assertEquals(20000L, stats.getTotalTime());
+        assertEquals(20000L, stats.getTotalTimeMove());
+        assertEquals(1000000L, stats.getStartTime());
+        assertEquals(1020000L, stats.getStopTime());
+        assertEquals(length / 20.0, stats.getSpeedMax(), 0.01);
+    }
+
+    @Test
+    public void movement() {
+        // standing on place for a minute, then moving
+        TrackStatsBuilder builder = new TrackStatsBuilder();
+        for (int i = 0; i < 7; i++) {
+            builder.addPoint(50.0, 14.0, i * 10000L, false, 0.0, -1.0f, 0, 0);
+        }
+        builder.addPoint(50.0 + STEP_LAT, 14.0, 65000L, false, 0.0, 3.0f, 0, 0);
+        TrackStats stats = builder.build();
+        assertEquals(65000L, stats.getTotalTime());
+        assertEquals(5000L, stats.getTotalTimeMove());
+        assertEquals(3.0f, stats.getSpeedMax(), 0.0f);
+    }
+
+    @Test
+    public void elevationHysteresis() {
+        TrackStatsBuilder builder = new TrackStatsBuilder();
+
+        // noise smaller then hysteresis is not counted
+        int index = 0;
+        for (int i = 0; i < 20; i++) {
+            addPoint(builder, index++, 100.0 + (i % 2 == 0 ? 2.0 : -2.0));
+        }
+        TrackStats stats = builder.build();
+        assertEquals(0.0f, stats.getElePositiveHeight(), 0.0f);
+        assertEquals(0.0f, stats.getEleNegativeHeight(), 0.0f);
+
+        // steep climb and descent are counted, from reference altitude of first point
+        for (int i = 1; i <= 10; i++) {
+            addPoint(builder, index++, 98.0 + i * 6.0);
+        }
+        for (int i = 1; i <= 5; i++) {
+            addPoint(builder, index++, 158.0 - i * 6.0);
+        }
+        stats = builder.build();
+        assertEquals(56.0f, stats.getElePositiveHeight(), 0.001f);
+        assertEquals(30.0f, stats.getEleNegativeHeight(), 0.001f);
+        assertEquals(158.0f, stats.getAltitudeMax(), 0.0f);
+        assertEquals(98.0f, stats.getAltitudeMin(), 0.0f);
+    }
+
+    @Test
+    public void elevationNeutral() {
+        // change above hysteresis, but on long distance is neutral
+        TrackStatsBuilder builder = new TrackStatsBuilder();
+        for (int i = 0; i <= 100; i++) {
+            addPoint(builder, i, 100.0 + i * 0.1);
+        }
+        TrackStats stats = builder.build();
+        assertEquals(0.0f, stats.getElePositiveHeight(), 0.0f);
+        assertEquals(10.0f, stats.getEleNeutralHeight(), 0.001f);
+    }
+
+    @Test
+    public void breaks() {
+        Track track = createTrack(100);
+        track.addBreak(49);
+        TrackStats stats = TrackStatsBuilder.compute(track);
+
+        // segment between break is not counted
+        double step = LocationCompute.computeDistanceFast(50.0, 14.0, 50.0 + STEP_LAT, 14.0);
+        assertEquals(100, stats.getNumOfPoints());
+        assertEquals(98 * step, stats.getTotalLength(), 0.1);
+        assertEquals(98 * 5000L, stats.getTotalTime());
+    }
+
+    @Test
+    public void heartRate() {
+        TrackStatsBuilder builder = new TrackStatsBuilder();
+        builder.addPoint(50.0, 14.0, 0L, false, 0.0, -1.0f, 100, 0);
+        builder.addPoint(50.0 + STEP_LAT, 14.0, 10000L, false, 0.0, -1.0f, 120, 0);
+        builder.addPoint(50.0 + 2 * STEP_LAT, 14.0, 20000L, false, 0.0, -1.0f, 140, 0);
+        TrackStats stats = builder.build();
+        assertEquals(140, stats.getHrmMax());
+        assertEquals(120, stats.getHrmAverage());
+    }
+
+    @Test
+    public void mergeRanges() {
+        // statistics of consecutive ranges merged are same as statistics of whole track
+        Track track = createTrack(1000);
+        track.addBreak(299);
+        track.addBreak(600);
+        TrackStats expected = TrackStatsBuilder.compute(track);
+
+        int[] bounds = new int[]{0, 150, 300, 301, 700, 1000};
+        TrackStats merged = new TrackStats();
+        for (int i = 1; i < bounds.length; i++) {
+            TrackStatsBuilder builder = new TrackStatsBuilder();
+            builder.addPoints(track, bounds[i - 1], bounds[i]);
+            merged.appendStatistics(builder.build());
+        }
+        assertBasic(expected, merged);
+    }
+
+    @Test
+    public void computeParallel() {
+        // breaks around boundaries of parallel chunks
+        Track track = createTrack(70000);
+        track.addBreak(16383);
+        track.addBreak(32768);
+        track.addBreak(50000);
+        TrackStats expected = TrackStatsBuilder.compute(track);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TrackStats stats = new TrackStatsBuilder().computeParallel(track, pool);
+            assertBasic(expected, stats);
+
+            // hysteresis restarts on boundaries of chunks only
+            float maxDiff = 4 * TrackStatsBuilder.DEFAULT_ELEVATION_HYSTERESIS;
+            assertEquals(expected.getElePositiveHeight(), stats.getElePositiveHeight(), maxDiff);
+            assertEquals(expected.getEleNegativeHeight(), stats.getEleNegativeHeight(), maxDiff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void computeParallelShort() {
+        Track track = createTrack(1000);
+        TrackStats expected = TrackStatsBuilder.compute(track);
+        TrackStats stats = new TrackStatsBuilder().computeParallel(track, ForkJoinPool.commonPool());
+        assertBasic(expected, stats);
+        assertEquals(expected.getElePositiveHeight(), stats.getElePositiveHeight(), 0.0f);
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private static void addPoint(TrackStatsBuilder builder, int index, double altitude) {
+        builder.addPoint(50.0 + index * STEP_LAT, 14.0, index * 5000L,
+                true, altitude, -1.0f, 0, 0);
+    }
+
+    /**
+     * Create straight track with altitude waves.
+     */
+    static Track createTrack(int count) {
+        List<Location> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Location loc = new Location(50.0 + i * STEP_LAT, 14.0);
+            loc.setTime(1000000L + i * 5000L);
+            loc.setAltitude(300.0 + 50.0 * Math.sin(i / 200.0) + (i % 3));
+            points.add(loc);
+        }
+        Track track = new Track();
+        track.setPoints(points);
+        return track;
+    }
+
+    /**
+     * Compare basic values, that do not depend on order of computation.
+     */
+    static void assertBasic(TrackStats expected, TrackStats stats) {
+        assertEquals(expected.getNumOfPoints(), stats.getNumOfPoints());
+        assertEquals(expected.getStartTime(), stats.getStartTime());
+        assertEquals(expected.getStopTime(), stats.getStopTime());
+        assertEquals(expected.getTotalTime(), stats.getTotalTime());
+        assertEquals(expected.getTotalTimeMove(), stats.getTotalTimeMove());
+        // lengths are summed in float, so order of summing changes result a little
+        assertEquals(expected.getTotalLength(), stats.getTotalLength(),
+                expected.getTotalLength() * 1e-3);
+        assertEquals(expected.getTotalLengthMove(), stats.getTotalLengthMove(),
+                expected.getTotalLengthMove() * 1e-3);
+        assertEquals(expected.getAltitudeMax(), stats.getAltitudeMax(), 0.0f);
+        assertEquals(expected.getAltitudeMin(), stats.getAltitudeMin(), 0.0f);
+        assertTrue(stats.getElePositiveHeight() > 0.0f);
+    }
+}
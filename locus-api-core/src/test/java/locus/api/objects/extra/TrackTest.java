@@ -0,0 +1,322 @@
+package locus.api.objects.extra;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import locus.api.objects.GeoData;
+import locus.api.objects.Samples;
+import locus.api.utils.DataReaderBigEndian;
+import locus.api.utils.DataWriterBigEndian;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrackTest {
+
+    @Test
+    public void readV5() throws IOException {
+        byte[] data = Samples.loadBaseline("track.bin");
+        assertEquals(5, Samples.getVersion(data));
+
+        Track track = new Track();
+        track.read(data);
+        assertTrack(Samples.createTrack(), track);
+        assertFalse(track.isPointsPacked());
+    }
+
+    @Test
+    public void writeLegacy() throws IOException {
+        // new versions only append data, so older readers read same content
+        byte[] baseline = Samples.loadBaseline("track.bin");
+        byte[] data = Samples.createTrack().getAsBytes();
+        assertStartsWith(Samples.getBody(baseline), Samples.getBody(data));
+    }
+
+    @Test
+    public void writePacked() throws IOException {
+        Track track = Samples.createTrack();
+        byte[] legacy = track.getAsBytes();
+        track.setPointsPacked(true);
+        byte[] data = track.getAsBytes();
+        assertTrue(data.length < legacy.length);
+
+        Track read = new Track();
+        read.read(data);
+        assertTrue(read.isPointsPacked());
+        assertTrack(track, read);
+    }
+
+    @Test
+    public void modifyPackedPoints() throws IOException {
+        Track track = Samples.createTrack();
+        track.setPointsPacked(true);
+
+        // points read in packed format are common objects, changes are kept
+        Track read = new Track();
+        read.read(track.getAsBytes());
+        assertFalse(read.isPointsCompact());
+        read.getPoint(2).setAltitude(1234.0);
+        read.getPoints().get(3).setSpeed(12.0f);
+        assertEquals(1234.0, read.getPoint(2).getAltitude(), 0.0);
+        assertEquals(12.0f, read.getPoint(3).getSpeed(), 0.0f);
+    }
+
+    @Test
+    public void writePackedEmpty() throws IOException {
+        Track track = new Track();
+        track.setPointsPacked(true);
+        Track read = new Track();
+        read.read(track.getAsBytes());
+        assertEquals(0, read.getPointsCount());
+    }
+
+    @Test
+    public void roundTripV5PackedV5() throws IOException {
+        byte[] baseline = Samples.loadBaseline("track.bin");
+        Track track = new Track();
+        track.read(baseline);
+
+        // store in packed format
+        track.setPointsPacked(true);
+        Track packed = new Track();
+        packed.read(track.getAsBytes());
+
+        // and back to format readable by older versions
+        packed.setPointsPacked(false);
+        assertStartsWith(Samples.getBody(baseline), Samples.getBody(packed.getAsBytes()));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void breaksList() {
+        Track track = new Track();
+        List<Integer> breaks = track.getBreaks();
+
+        // list keeps common behaviour, values are stored as they are
+        assertTrue(breaks.add(10));
+        assertTrue(breaks.add(5));
+        assertTrue(breaks.add(5));
+        breaks.add(0, 20);
+        assertEquals(Integer.valueOf(10), breaks.set(1, 15));
+        assertEquals(Arrays.asList(20, 15, 5, 5), breaks);
+        assertEquals(Integer.valueOf(5), breaks.remove(3));
+        assertEquals(Arrays.asList(20, 15, 5), breaks);
+
+        // other methods work with sorted breaks
+        assertArrayEquals(new int[]{5, 15, 20}, track.getBreaksArray());
+        assertEquals(Arrays.asList(5, 15, 20), breaks);
+        track.addBreak(10);
+        assertEquals(Arrays.asList(5, 10, 15, 20), breaks);
+    }
+
+    @Test
+    public void breaksAdd() {
+        Track track = new Track();
+        for (int i = 0; i < 100000; i++) {
+            track.addBreak(i * 2);
+        }
+        track.addBreak(3);
+        track.addBreak(3);
+        track.addBreak(-1);
+        assertEquals(100002, track.getBreaksCount());
+        assertEquals(-1, track.getBreak(0));
+        assertEquals(3, track.getBreak(3));
+        assertEquals(199998, track.getBreak(100001));
+        track.removeBreakAt(0);
+        assertEquals(0, track.getBreak(0));
+    }
+
+    @Test
+    public void breaksSegments() {
+        Track track = Samples.createTrack();
+        assertEquals(3, track.getSegmentsCount());
+        assertEquals(0, track.getSegmentStart(0));
+        assertEquals(4, track.getSegmentEnd(0));
+        assertEquals(4, track.getSegmentStart(1));
+        assertEquals(8, track.getSegmentEnd(1));
+        assertEquals(12, track.getSegmentEnd(2));
+        assertEquals(0, track.getSegmentOfPoint(3));
+        assertEquals(1, track.getSegmentOfPoint(4));
+        assertEquals(2, track.getSegmentOfPoint(11));
+        assertEquals(4, track.getSegmentPoints(1).size());
+    }
+
+    @Test
+    public void breaksData() {
+        Track track = new Track();
+        track.setBreaks(new int[]{7, 3, 3});
+        assertArrayEquals(new int[]{3, 7}, track.getBreaksArray());
+        byte[] data = track.getBreaksData();
+        assertEquals(8, data.length);
+
+        // empty data do not change breaks
+        track.setBreaksData(null);
+        track.setBreaksData(new byte[0]);
+        assertArrayEquals(new int[]{3, 7}, track.getBreaksArray());
+
+        Track copy = new Track();
+        copy.setBreaksData(data);
+        assertArrayEquals(new int[]{3, 7}, copy.getBreaksArray());
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void breaksUnsortedWrite() throws IOException {
+        Track track = Samples.createTrack();
+        track.getBreaks().add(1);
+
+        // order of breaks is kept in written data
+        Track read = new Track();
+        read.read(track.getAsBytes());
+        assertEquals(Arrays.asList(3, 7, 1), read.getBreaks());
+        assertEquals(Arrays.asList(3, 7, 1), track.getBreaks());
+        assertArrayEquals(new int[]{1, 3, 7}, read.getBreaksArray());
+        assertEquals(4, read.getSegmentsCount());
+        assertTrue(read.getBounds().isValid());
+    }
+
+    @Test
+    public void readBoundsV7() throws IOException {
+        Track track = Samples.createTrack();
+        track.setPointsPacked(true);
+        byte[] data = track.getAsBytes();
+
+        // bounds are available without decoding of points
+        DataReaderBigEndian dr = new DataReaderBigEndian(data);
+        dr.setDecodeMask(GeoData.DECODE_HEADER);
+        Track read = new Track();
+        read.read(dr);
+        assertFalse(read.isDecodedFully());
+        assertBounds(Samples.createTrack(), 0, 12, read.getBounds());
+        assertFalse(read.isDecodedFully());
+    }
+
+    @Test
+    public void segmentBounds() {
+        Track track = Samples.createTrack();
+        assertEquals(3, track.getSegmentsCount());
+        for (int i = 0; i < 3; i++) {
+            assertBounds(track, track.getSegmentStart(i), track.getSegmentEnd(i),
+                    track.getSegmentBounds(i));
+        }
+    }
+
+    @Test
+    public void invalidateBounds() {
+        Track track = Samples.createTrack();
+        track.getBounds();
+
+        // in-place change of location is visible after invalidation
+        track.getPoint(5).setLatitude(55.0);
+        track.invalidateBounds();
+        assertEquals(55.0, track.getBounds().getMaxLat(), 0.0);
+
+        // added point is detected automatically
+        track.getPoints().add(new Location(-10.0, 14.0));
+        assertEquals(-10.0, track.getBounds().getMinLat(), 0.0);
+    }
+
+    @Test
+    public void writeBoundsFresh() throws IOException {
+        Track track = Samples.createTrack();
+        track.getBounds();
+
+        // replaced point is not detected by cache of bounds, written bounds are fresh
+        Location loc = new Location(track.getPoint(5));
+        loc.setLatitude(55.0);
+        track.getPoints().set(5, loc);
+
+        Track read = new Track();
+        read.read(track.getAsBytes());
+        assertEquals(55.0, read.getBounds().getMaxLat(), 0.0);
+    }
+
+    @Test
+    public void rewriteHeaderOnly() throws IOException {
+        Track track = Samples.createTrack();
+        track.setPointsPacked(true);
+        byte[] data = track.getAsBytes();
+
+        DataReaderBigEndian dr = new DataReaderBigEndian(data);
+        dr.setDecodeMask(GeoData.DECODE_HEADER);
+        Track header = new Track();
+        header.read(dr);
+        header.setName("Renamed");
+        header.addParameter(GeoDataExtra.PAR_KML_TRIP_ID, "trip");
+
+        // skipped points are written back unchanged
+        Track read = new Track();
+        read.read(header.getAsBytes());
+        assertEquals("Renamed", read.getName());
+        assertEquals("trip", read.getParameter(GeoDataExtra.PAR_KML_TRIP_ID));
+        read.setName(track.getName());
+        read.removeParameter(GeoDataExtra.PAR_KML_TRIP_ID);
+        assertTrack(track, read);
+    }
+
+    @Test(expected = IOException.class)
+    public void readInvalidPointsCount() throws IOException {
+        // number of points, that does not match available data, is rejected before allocation
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeVarInt(100000000);
+        dw.writeLong(0L);
+        TrackPointsCodec.read(new DataReaderBigEndian(dw.toByteArray()));
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    /**
+     * Compare content of two tracks.
+     */
+    static void assertTrack(Track expected, Track track) {
+        assertEquals(expected.getId(), track.getId());
+        assertEquals(expected.getName(), track.getName());
+        assertEquals(expected.getTimeCreated(), track.getTimeCreated());
+        assertEquals(expected.getParameterDescription(), track.getParameterDescription());
+        assertEquals(expected.getActivityType(), track.getActivityType());
+        assertArrayEquals(expected.getBreaksArray(), track.getBreaksArray());
+        assertEquals(expected.getPointsCount(), track.getPointsCount());
+        for (int i = 0, n = expected.getPointsCount(); i < n; i++) {
+            assertArrayEquals(expected.getPoint(i).getAsBytes(), track.getPoint(i).getAsBytes());
+        }
+        assertEquals(expected.getWaypoints().size(), track.getWaypoints().size());
+        for (int i = 0, n = expected.getWaypoints().size(); i < n; i++) {
+            assertArrayEquals(expected.getWaypoint(i).getAsBytes(),
+                    track.getWaypoint(i).getAsBytes());
+        }
+        assertArrayEquals(expected.getStyleNormal().getAsBytes(),
+                track.getStyleNormal().getAsBytes());
+        assertEquals(expected.getStats().getNumOfPoints(), track.getStats().getNumOfPoints());
+        assertEquals(expected.getStats().getTotalLength(), track.getStats().getTotalLength(), 0.0f);
+    }
+
+    /**
+     * Compare bounds with bounds computed from range of points of track.
+     */
+    private static void assertBounds(Track expected, int from, int to, BoundingBox bounds) {
+        BoundingBox box = new BoundingBox();
+        for (int i = from; i < to; i++) {
+            Location loc = expected.getPoint(i);
+            box.extend(loc.getLatitude(), loc.getLongitude());
+        }
+        assertEquals(box.getMinLat(), bounds.getMinLat(), 0.0);
+        assertEquals(box.getMinLon(), bounds.getMinLon(), 0.0);
+        assertEquals(box.getMaxLat(), bounds.getMaxLat(), 0.0);
+        assertEquals(box.getMaxLon(), bounds.getMaxLon(), 0.0);
+    }
+
+    /**
+     * Check, that data starts with certain prefix.
+     */
+    static void assertStartsWith(byte[] prefix, byte[] data) {
+        assertTrue(data.length >= prefix.length);
+        assertArrayEquals(prefix, Arrays.copyOf(data, prefix.length));
+    }
+}
@@ -0,0 +1,151 @@
+package locus.api.objects.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import locus.api.objects.extra.BoundingBox;
+import locus.api.objects.extra.Location;
+import locus.api.objects.extra.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpatialIndexTest {
+
+    @Test
+    public void empty() {
+        SpatialIndex<Point> index = new SpatialIndex<>(new ArrayList<Point>());
+        assertEquals(0, index.size());
+        assertEquals(0, index.queryNearest(50.0, 14.0, 5).size());
+        assertEquals(0, index.queryRadius(50.0, 14.0, 1000.0).size());
+    }
+
+    @Test
+    public void nearestGlobal() {
+        Random random = new Random(1);
+        List<Point> points = createPoints(random, 5000, -90.0, 90.0, -180.0, 180.0);
+        SpatialIndex<Point> index = new SpatialIndex<>(points);
+        assertEquals(points.size(), index.size());
+        for (int i = 0; i < 200; i++) {
+            double lat = random.nextDouble() * 180.0 - 90.0;
+            double lon = random.nextDouble() * 360.0 - 180.0;
+            assertNearest(points, index, lat, lon, 5);
+        }
+    }
+
+    @Test
+    public void nearestHighLatitudes() {
+        // items far in longitude are near over pole
+        Random random = new Random(2);
+        List<Point> points = createPoints(random, 5000, 60.0, 85.0, -180.0, 180.0);
+        SpatialIndex<Point> index = new SpatialIndex<>(points);
+        for (int i = 0; i < 500; i++) {
+            Point base = points.get(random.nextInt(points.size()));
+            double lat = 60.0 + random.nextDouble() * 25.0;
+            double lon = base.getLocation().getLongitude()
+                    + (random.nextBoolean() ? 1 : -1) * (60.0 + random.nextDouble() * 60.0);
+            lon = lon > 180.0 ? lon - 360.0 : lon < -180.0 ? lon + 360.0 : lon;
+            assertNearest(points, index, lat, lon, 5);
+        }
+    }
+
+    @Test
+    public void nearestOverMeridian() {
+        Random random = new Random(3);
+        List<Point> points = createPoints(random, 2000, -10.0, 10.0, 170.0, 180.0);
+        points.addAll(createPoints(random, 2000, -10.0, 10.0, -180.0, -170.0));
+        SpatialIndex<Point> index = new SpatialIndex<>(points);
+        for (int i = 0; i < 100; i++) {
+            double lat = random.nextDouble() * 20.0 - 10.0;
+            double lon = random.nextBoolean() ? 179.9 : -179.9;
+            assertNearest(points, index, lat, lon, 5);
+        }
+    }
+
+    @Test
+    public void radius() {
+        Random random = new Random(4);
+        List<Point> points = createPoints(random, 5000, -90.0, 90.0, -180.0, 180.0);
+        SpatialIndex<Point> index = new SpatialIndex<>(points);
+        double[][] queries = new double[][]{
+                {50.0, 14.0, 500000.0},
+                {89.5, 10.0, 300000.0},
+                {-88.0, -100.0, 1000000.0},
+                {0.0, 179.0, 800000.0},
+                {70.0, -60.0, 3000000.0}};
+        for (double[] query : queries) {
+            List<Point> expected = new ArrayList<>();
+            for (Point point : points) {
+                if (distance(point, query[0], query[1]) <= query[2]) {
+                    expected.add(point);
+                }
+            }
+            List<Point> result = index.queryRadius(query[0], query[1], query[2]);
+            assertTrue(expected.size() > 0);
+            assertEquals(expected.size(), result.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(result));
+        }
+    }
+
+    @Test
+    public void range() {
+        Random random = new Random(5);
+        List<Point> points = createPoints(random, 5000, -90.0, 90.0, -180.0, 180.0);
+        SpatialIndex<Point> index = new SpatialIndex<>(points);
+        BoundingBox box = new BoundingBox();
+        box.set(40.0, 0.0, 60.0, 30.0);
+        List<Point> expected = new ArrayList<>();
+        for (Point point : points) {
+            Location loc = point.getLocation();
+            if (loc.getLatitude() >= 40.0 && loc.getLatitude() <= 60.0
+                    && loc.getLongitude() >= 0.0 && loc.getLongitude() <= 30.0) {
+                expected.add(point);
+            }
+        }
+        assertEquals(new HashSet<>(expected), new HashSet<>(index.queryRange(box)));
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private static List<Point> createPoints(Random random, int count,
+            double minLat, double maxLat, double minLon, double maxLon) {
+        List<Point> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(new Point("p" + i, new Location(
+                    minLat + random.nextDouble() * (maxLat - minLat),
+                    minLon + random.nextDouble() * (maxLon - minLon))));
+        }
+        return points;
+    }
+
+    private static double distance(Point point, double lat, double lon) {
+        Location loc = point.getLocation();
+        return LocationCompute.computeDistanceFast(lat, lon, loc.getLatitude(), loc.getLongitude());
+    }
+
+    /**
+     * Compare nearest items from index with result of brute-force search.
+     */
+    private static void assertNearest(List<Point> points, SpatialIndex<Point> index,
+            double lat, double lon, int count) {
+        double[] expected = new double[points.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = distance(points.get(i), lat, lon);
+        }
+        Arrays.sort(expected);
+
+        List<Point> result = index.queryNearest(lat, lon, count);
+        assertEquals(count, result.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("Query " + lat + ", " + lon + ", item " + i,
+                    expected[i], distance(result.get(i), lat, lon), 1e-6);
+        }
+    }
+}
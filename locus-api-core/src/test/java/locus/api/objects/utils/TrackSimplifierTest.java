@@ -0,0 +1,189 @@
+package locus.api.objects.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import locus.api.objects.extra.Location;
+import locus.api.objects.extra.Point;
+import locus.api.objects.extra.Track;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrackSimplifierTest {
+
+    // number of metres per degree of latitude
+    private static final double METRES_PER_DEGREE =
+            LocationCompute.AVERAGE_RADIUS_OF_EARTH * Math.PI / 180.0;
+
+    @Test
+    public void simplifyLine() {
+        // noise smaller then tolerance is removed
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            points.add(new Location(50.0 + i * 0.0001, 14.0 + (i % 2) * 0.00001));
+        }
+        List<Location> result = TrackSimplifier.simplify(points, 5.0);
+        assertEquals(2, result.size());
+        assertSame(points.get(0), result.get(0));
+        assertSame(points.get(99), result.get(1));
+    }
+
+    @Test
+    public void simplifyCorners() {
+        // corners of zigzag are kept
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i <= 40; i++) {
+            int phase = i % 10;
+            double offset = (phase <= 5 ? phase : 10 - phase) * 0.0002;
+            points.add(new Location(50.0 + i * 0.0001, 14.0 + offset));
+        }
+        List<Location> result = TrackSimplifier.simplify(points, 1.0);
+        assertEquals(9, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertSame(points.get(i * 5), result.get(i));
+        }
+    }
+
+    @Test
+    public void simplifyRandom() {
+        int count = 5000;
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        createRandomWalk(lats, lons, new Random(1));
+        for (double tolerance : new double[]{0.5, 5.0, 50.0}) {
+            boolean[] keep = TrackSimplifier.simplify(lats, lons, count, tolerance, null);
+            assertTrue(keep[0] && keep[count - 1]);
+            assertWithinTolerance(lats, lons, keep, tolerance);
+        }
+    }
+
+    @Test
+    public void simplifyTrack() {
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            points.add(new Location(50.0 + i * 0.0001, 14.0));
+        }
+        Track track = new Track();
+        track.setPoints(points);
+        track.addBreak(99);
+        track.addBreak(199);
+        track.getWaypoints().add(new Point("wpt", new Location(50.0150, 14.0001)));
+
+        // ends of segments and point nearest to waypoint are kept
+        assertEquals(293, TrackSimplifier.simplify(track, 5.0));
+        assertEquals(7, track.getPointsCount());
+        assertArrayEquals(new int[]{1, 4}, track.getBreaksArray());
+        int[] expected = new int[]{0, 99, 100, 150, 199, 200, 299};
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(points.get(expected[i]), track.getPoint(i));
+        }
+    }
+
+    @Test
+    public void simplifyTrackCompact() {
+        List<Location> points = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            points.add(new Location(50.0 + i * 0.0001, 14.0));
+        }
+        Track track = new Track();
+        track.setPoints(points);
+        track.setPointsCompact(true);
+        assertEquals(48, TrackSimplifier.simplify(track, 1.0));
+        assertTrue(track.isPointsCompact());
+        assertEquals(50.0049, track.getPoint(1).getLatitude(), 1e-9);
+    }
+
+    @Test
+    public void streamLine() {
+        TrackSimplifier.Stream stream = new TrackSimplifier.Stream(5.0);
+        assertEquals(0, stream.add(50.0, 14.0));
+        for (int i = 1; i < 100; i++) {
+            assertEquals(-1, stream.add(50.0 + i * 0.0001, 14.0));
+        }
+        assertEquals(99, stream.finish());
+    }
+
+    @Test
+    public void streamRandom() {
+        int count = 3000;
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        createRandomWalk(lats, lons, new Random(2));
+        double tolerance = 5.0;
+
+        TrackSimplifier.Stream stream = new TrackSimplifier.Stream(tolerance);
+        boolean[] keep = new boolean[count];
+        int last = -1;
+        for (int i = 0; i < count; i++) {
+            int index = stream.add(lats[i], lons[i]);
+            if (index >= 0) {
+                // points are confirmed in order
+                assertTrue(index > last);
+                keep[index] = true;
+                last = index;
+            }
+        }
+        int index = stream.finish();
+        if (index >= 0) {
+            keep[index] = true;
+        }
+        assertTrue(keep[0] && keep[count - 1]);
+        assertWithinTolerance(lats, lons, keep, tolerance);
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private static void createRandomWalk(double[] lats, double[] lons, Random random) {
+        double lat = 50.0;
+        double lon = 14.0;
+        double bearing = 0.0;
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = lat;
+            lons[i] = lon;
+            bearing += random.nextGaussian() * 0.3;
+            lat += Math.cos(bearing) * 0.00005;
+            lon += Math.sin(bearing) * 0.00008;
+        }
+    }
+
+    /**
+     * Check, that every removed point is within tolerance from line between surrounding
+     * kept points.
+     */
+    private static void assertWithinTolerance(double[] lats, double[] lons, boolean[] keep,
+            double tolerance) {
+        double lonScale = Math.cos(Math.toRadians(lats[0])) * METRES_PER_DEGREE;
+        int from = 0;
+        for (int to = 1; to < keep.length; to++) {
+            if (!keep[to]) {
+                continue;
+            }
+            for (int i = from + 1; i < to; i++) {
+                double dist = distanceToSegment(
+                        lons[i] * lonScale, lats[i] * METRES_PER_DEGREE,
+                        lons[from] * lonScale, lats[from] * METRES_PER_DEGREE,
+                        lons[to] * lonScale, lats[to] * METRES_PER_DEGREE);
+                assertTrue("Point " + i + " distance " + dist, dist <= tolerance * 1.01);
+            }
+            from = to;
+        }
+    }
+
+    private static double distanceToSegment(double px, double py,
+            double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lenSq = dx * dx + dy * dy;
+        double t = lenSq > 0.0
+                ? Math.max(0.0, Math.min(1.0, ((px - ax) * dx + (py - ay) * dy) / lenSq)) : 0.0;
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+}
@@ -0,0 +1,169 @@
+package locus.api.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import locus.api.objects.Samples;
+import locus.api.objects.Storable;
+import locus.api.objects.extra.Point;
+import locus.api.objects.extra.Track;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressionTest {
+
+    @Test
+    public void compressCodecs() throws IOException {
+        byte[][] samples = new byte[][]{
+                new byte[0],
+                Samples.createPoint().getAsBytes(),
+                Samples.createTrack().getAsBytes(),
+                createRandom(10000)};
+        int[] codecs = new int[]{
+                Compression.CODEC_NONE, Compression.CODEC_LZ, Compression.CODEC_DEFLATE};
+        for (byte[] data : samples) {
+            for (int codec : codecs) {
+                byte[] frame = Compression.compress(data, 0, data.length, codec);
+                assertTrue(Compression.isCompressed(frame, 0, frame.length));
+                assertArrayEquals(data, Compression.decompress(frame, 0, frame.length));
+            }
+        }
+    }
+
+    @Test
+    public void compressSmallOrRandom() {
+        // data, that are not worth to compress, are returned without frame
+        byte[] small = new byte[100];
+        assertSame(small, Compression.compress(small));
+        byte[] random = createRandom(5000);
+        assertSame(random, Compression.compress(random));
+    }
+
+    @Test
+    public void readListCompressed() throws IOException {
+        List<Point> points = createPoints();
+        byte[] data = Storable.getAsBytesCompressed(points);
+        assertTrue(Compression.isCompressed(data, 0, data.length));
+        assertTrue(data.length < Storable.getAsBytes(points).length);
+        assertPoints(points, Storable.readList(Point.class, data));
+
+        // uncompressed data are read as before
+        assertPoints(points, Storable.readList(Point.class, Storable.getAsBytes(points)));
+    }
+
+    @Test
+    public void readCompressed() throws IOException {
+        Track track = Samples.createTrack();
+        byte[] data = track.getAsBytes();
+
+        Track read = new Track();
+        read.read(Compression.compress(data));
+        assertArrayEquals(data, read.getAsBytes());
+    }
+
+    @Test
+    public void readStreamCompressed() throws IOException {
+        List<Point> points = createPoints();
+        byte[] data = Storable.getAsBytesCompressed(points);
+        DataReaderBigEndian dr = new DataReaderBigEndian(new ByteArrayInputStream(data));
+        assertPoints(points, dr.readListStorable(Point.class));
+    }
+
+    @Test
+    public void readNestedMagic() throws IOException {
+        // reader over array does not detect frames, magic number is ordinary value
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeInt(Compression.MAGIC);
+        dw.writeInt(Compression.CODEC_LZ);
+        dw.writeLong(Long.MAX_VALUE);
+        DataReaderBigEndian dr = new DataReaderBigEndian(dw.toByteArray());
+        assertEquals(Compression.MAGIC, dr.readInt());
+        assertEquals(Compression.CODEC_LZ, dr.readInt());
+        assertEquals(Long.MAX_VALUE, dr.readLong());
+
+        // point with such ID is read correctly
+        Point pt = Samples.createPoint();
+        pt.setId(((long) Compression.MAGIC) << 32);
+        Point read = new Point();
+        read.read(new DataReaderBigEndian(pt.getAsBytes()));
+        assertEquals(pt.getId(), read.getId());
+    }
+
+    @Test
+    public void readInvalidFrame() {
+        byte[] data = Samples.createTrack().getAsBytes();
+        byte[] frame = Compression.compress(data, 0, data.length, Compression.CODEC_LZ);
+
+        // too big size of uncompressed data
+        assertInvalid(setInt(frame.clone(), 5, Integer.MAX_VALUE));
+        assertInvalid(setInt(frame.clone(), 5, -1));
+        // unrealistic ratio of sizes
+        assertInvalid(setInt(setInt(frame.clone(), 5, 100000000), 9, 10));
+        // truncated frame
+        assertInvalid(Arrays.copyOf(frame, frame.length - 10));
+        // unknown codec
+        byte[] codec = frame.clone();
+        codec[4] = 10;
+        assertInvalid(codec);
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private static List<Point> createPoints() {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Point pt = Samples.createPoint();
+            pt.setId(i);
+            points.add(pt);
+        }
+        return points;
+    }
+
+    private static void assertPoints(List<Point> expected, List<Point> points) {
+        assertEquals(expected.size(), points.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i).getAsBytes(), points.get(i).getAsBytes());
+        }
+    }
+
+    private static void assertInvalid(byte[] frame) {
+        try {
+            Compression.decompress(frame, 0, frame.length);
+            fail("Invalid frame accepted");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            Storable.readList(Point.class, frame);
+            fail("Invalid frame accepted");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static byte[] createRandom(int size) {
+        byte[] data = new byte[size];
+        new Random(1).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] setInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+        return data;
+    }
+}
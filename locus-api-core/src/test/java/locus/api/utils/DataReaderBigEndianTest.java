@@ -0,0 +1,144 @@
+package locus.api.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DataReaderBigEndianTest {
+
+    @Test
+    public void readStreamSmallChunks() throws IOException {
+        byte[] data = createData();
+        assertData(new DataReaderBigEndian(new ChunkedInputStream(data, 3)));
+        assertData(new DataReaderBigEndian(new ChunkedInputStream(data, 1)));
+    }
+
+    @Test
+    public void readChannel() throws IOException {
+        byte[] data = createData();
+        assertData(new DataReaderBigEndian(
+                Channels.newChannel(new ByteArrayInputStream(data))));
+        assertData(new DataReaderBigEndian(ByteBuffer.wrap(data)));
+    }
+
+    @Test
+    public void skipStream() throws IOException {
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeInt(1);
+        dw.write(new byte[100000]);
+        dw.writeInt(2);
+        DataReaderBigEndian dr = new DataReaderBigEndian(
+                new ChunkedInputStream(dw.toByteArray(), 1000));
+        assertEquals(1, dr.readInt());
+        dr.skip(100000);
+        assertEquals(2, dr.readInt());
+    }
+
+    @Test
+    public void readStreamInvalidSize() throws IOException {
+        // size read from data is bigger then data itself, buffer grows only with received data
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        dw.writeInt(Integer.MAX_VALUE - 16);
+        dw.write(new byte[1000]);
+        DataReaderBigEndian dr = new DataReaderBigEndian(
+                new ByteArrayInputStream(dw.toByteArray()));
+        try {
+            dr.readBytes(dr.readInt());
+            fail("Invalid size accepted");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readNonBlockingChannel() throws IOException {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            new DataReaderBigEndian(pipe.source());
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readSourceWithoutData() throws IOException {
+        DataReaderBigEndian dr = new DataReaderBigEndian(new DataReaderBigEndian.Source() {
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                return 0;
+            }
+        }, 16);
+        dr.readInt();
+    }
+
+    //*************************************************
+    // TOOLS
+    //*************************************************
+
+    private static byte[] createData() throws IOException {
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        for (int i = 0; i < 5000; i++) {
+            dw.writeInt(i);
+            dw.writeLong(i * 1000000007L);
+            dw.writeString("text " + i);
+            dw.writeDouble(i / 3.0);
+        }
+        dw.write(new byte[20000]);
+        dw.writeInt(-1);
+        return dw.toByteArray();
+    }
+
+    private static void assertData(DataReaderBigEndian dr) throws IOException {
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, dr.readInt());
+            assertEquals(i * 1000000007L, dr.readLong());
+            assertEquals("text " + i, dr.readString());
+            assertEquals(i / 3.0, dr.readDouble(), 0.0);
+        }
+        assertArrayEquals(new byte[20000], dr.readBytes(20000));
+        assertEquals(-1, dr.readInt());
+    }
+
+    /**
+     * Stream, that returns data in small chunks.
+     */
+    private static class ChunkedInputStream extends InputStream {
+
+        private final byte[] mData;
+        private final int mChunk;
+        private int mPos;
+
+        private ChunkedInputStream(byte[] data, int chunk) {
+            this.mData = data;
+            this.mChunk = chunk;
+        }
+
+        @Override
+        public int read() {
+            return mPos < mData.length ? mData[mPos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (mPos == mData.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, mChunk), mData.length - mPos);
+            System.arraycopy(mData, mPos, buffer, offset, count);
+            mPos += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package locus.api.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import locus.api.objects.Samples;
+import locus.api.objects.Storable;
+import locus.api.objects.extra.Point;
+import locus.api.objects.extra.Track;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataWriterBigEndianTest {
+
+    @Test
+    public void writeIntAt() throws IOException {
+        DataWriterBigEndian dw = new DataWriterBigEndian(4);
+        int pos = dw.reserveInt();
+        dw.writeLong(Long.MAX_VALUE);
+        dw.writeIntAt(pos, 0x01020304);
+        assertEquals(12, dw.getPosition());
+        dw.writeByte((byte) 5);
+
+        DataReaderBigEndian dr = new DataReaderBigEndian(dw.toByteArray());
+        assertEquals(0x01020304, dr.readInt());
+        assertEquals(Long.MAX_VALUE, dr.readLong());
+        assertEquals(5, dr.readByte());
+    }
+
+    @Test
+    public void writeNested() throws IOException {
+        // nested objects written in single pass are same as objects written separately
+        List<Point> points = new ArrayList<>();
+        DataWriterBigEndian expected = new DataWriterBigEndian();
+        expected.writeInt(3);
+        for (int i = 0; i < 3; i++) {
+            Point pt = Samples.createPoint();
+            pt.setId(i);
+            points.add(pt);
+            expected.write(pt.getAsBytes());
+        }
+        assertArrayEquals(expected.toByteArray(), Storable.getAsBytes(points));
+    }
+
+    @Test
+    public void writeNestedSize() throws IOException {
+        Track track = Samples.createTrack();
+        byte[] data = track.getAsBytes();
+        DataReaderBigEndian dr = new DataReaderBigEndian(data);
+        assertEquals(track.getVersion(), dr.readInt());
+        assertEquals(data.length - 8, dr.readInt());
+
+        // nested waypoint is stored with its own valid header
+        byte[] wpt = track.getWaypoint(0).getAsBytes();
+        assertTrue(indexOf(data, wpt) > 0);
+
+        Track read = new Track();
+        read.read(data);
+        assertArrayEquals(data, read.getAsBytes());
+    }
+
+    @Test
+    public void writeVarInt() throws IOException {
+        int[] values = new int[]{0, 1, 63, 64, 127, 128, 16383, 16384, -1, -64, -65,
+                Integer.MAX_VALUE, Integer.MIN_VALUE};
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        for (int v : values) {
+            dw.writeVarInt(v);
+            dw.writeVarIntSigned(v);
+        }
+        DataReaderBigEndian dr = new DataReaderBigEndian(dw.toByteArray());
+        for (int v : values) {
+            assertEquals(v, dr.readVarInt());
+            assertEquals(v, dr.readVarIntSigned());
+        }
+        assertEquals(0, dr.available());
+
+        // size of values
+        assertEquals(1, getVarIntSize(127, false));
+        assertEquals(2, getVarIntSize(128, false));
+        assertEquals(5, getVarIntSize(-1, false));
+        assertEquals(1, getVarIntSize(-64, true));
+        assertEquals(2, getVarIntSize(-65, true));
+    }
+
+    @Test
+    public void writeVarLong() throws IOException {
+        long[] values = new long[]{0L, 1L, 127L, 128L, -1L, 1L << 35, -(1L << 35),
+                Long.MAX_VALUE, Long.MIN_VALUE};
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        for (long v : values) {
+            dw.writeVarLong(v);
+            dw.writeVarLongSigned(v);
+        }
+        DataReaderBigEndian dr = new DataReaderBigEndian(dw.toByteArray());
+        for (long v : values) {
+            assertEquals(v, dr.readVarLong());
+            assertEquals(v, dr.readVarLongSigned());
+        }
+        assertEquals(0, dr.available());
+    }
+
+    @Test(expected = IOException.class)
+    public void readVarIntTooLong() throws IOException {
+        byte[] data = new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+                (byte) 0x80, 0x01};
+        new DataReaderBigEndian(data).readVarInt();
+    }
+
+    @Test
+    public void writeStringVar() throws IOException {
+        // length prefix shorter then reserved for the worst case, multi-byte characters
+        String[] texts = new String[]{"", "a", repeat("x", 50), repeat("\u010d", 100),
+                repeat("\ud83d\ude00", 40), repeat("y", 20000)};
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        for (String text : texts) {
+            dw.writeStringVar(text);
+        }
+        DataReaderBigEndian dr = new DataReaderBigEndian(dw.toByteArray());
+        for (String text : texts) {
+            assertEquals(text, dr.readStringVar());
+        }
+        assertEquals(0, dr.available());
+    }
+
+    private static int getVarIntSize(int v, boolean signed) {
+        DataWriterBigEndian dw = new DataWriterBigEndian();
+        if (signed) {
+            dw.writeVarIntSigned(v);
+        } else {
+            dw.writeVarInt(v);
+        }
+        return dw.size();
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(text);
+        }
+        return sb.toString();
+    }
+
+    private static int indexOf(byte[] data, byte[] part) {
+        for (int i = 0, m = data.length - part.length; i <= m; i++) {
+            boolean equals = true;
+            for (int j = 0; j < part.length && equals; j++) {
+                equals = data[i + j] == part[j];
+            }
+            if (equals) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,158 @@
+package locus.api.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TagMapTest {
+
+    private static final TagMap.Key<String> KEY_NAME = new TagMap.Key<>("name");
+    private static final TagMap.Key<Integer> KEY_COUNT = new TagMap.Key<>("count");
+
+    @Test
+    public void typedKeys() {
+        TagMap map = new TagMap();
+        assertNull(map.put(KEY_NAME, "first"));
+        assertEquals("first", map.put(KEY_NAME, "second"));
+        map.put(KEY_COUNT, 5);
+        assertEquals("second", map.get(KEY_NAME));
+        assertEquals(Integer.valueOf(5), map.get(KEY_COUNT));
+        assertEquals(2, map.size());
+
+        assertEquals(Integer.valueOf(5), map.remove(KEY_COUNT));
+        assertNull(map.get(KEY_COUNT));
+        assertNull(map.remove(KEY_COUNT));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void growAndShrink() {
+        TagMap map = new TagMap();
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, i);
+        }
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, map.get("key" + i));
+        }
+
+        // back to inline storage
+        for (int i = 0; i < 99; i++) {
+            assertEquals(i, map.remove("key" + i));
+        }
+        assertEquals(1, map.size());
+        assertEquals(99, map.get("key99"));
+        map.put("key0", 0);
+        assertEquals(0, map.get("key0"));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get("key99"));
+    }
+
+    @Test
+    public void removeCollisions() {
+        // keys with same hash form one cluster, removal has to keep rest reachable
+        TagMap map = new TagMap();
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Object key = new FixedHash(i % 3 == 0 ? 7 : 8, i);
+            keys.add(key);
+            map.put(key, i);
+        }
+        for (int i = 0; i < 12; i += 2) {
+            assertEquals(i, map.remove(keys.get(i)));
+            for (int j = 0; j < 12; j++) {
+                assertEquals(j <= i && j % 2 == 0 ? null : (Object) j, map.get(keys.get(j)));
+            }
+        }
+        assertEquals(6, map.size());
+    }
+
+    @Test
+    public void removeWrapped() {
+        // cluster wraps over end of table
+        TagMap map = new TagMap();
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Object key = new FixedHash(i < 4 ? 15 : 0, i);
+            keys.add(key);
+            map.put(key, i);
+        }
+        assertEquals(0, map.remove(keys.get(0)));
+        assertEquals(4, map.remove(keys.get(4)));
+        for (int i = 1; i < 8; i++) {
+            assertEquals(i == 4 ? null : (Object) i, map.get(keys.get(i)));
+        }
+    }
+
+    @Test
+    public void randomOperations() {
+        Random random = new Random(1);
+        TagMap map = new TagMap();
+        Map<Object, Object> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            Object key = new FixedHash(random.nextInt(16), random.nextInt(40));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Integer value = i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int h = 0; h < 16; h++) {
+            for (int id = 0; id < 40; id++) {
+                Object key = new FixedHash(h, id);
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void putNull() {
+        new TagMap().put("key", null);
+    }
+
+    @Test
+    public void sameValue() {
+        TagMap map = new TagMap();
+        Object value = new Object();
+        map.put("key", value);
+        assertSame(value, map.get("key"));
+    }
+
+    /**
+     * Key with defined hash code.
+     */
+    private static final class FixedHash {
+
+        private final int mHash;
+        private final int mId;
+
+        private FixedHash(int hash, int id) {
+            this.mHash = hash;
+            this.mId = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof FixedHash
+                    && ((FixedHash) obj).mHash == mHash
+                    && ((FixedHash) obj).mId == mId;
+        }
+    }
+}